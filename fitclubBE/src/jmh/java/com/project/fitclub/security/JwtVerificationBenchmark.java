@@ -0,0 +1,62 @@
+package com.project.fitclub.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verification of one id token: jjwt with the secret string, as JwtTokenProvider did on every request,
+ * jjwt with the precomputed key, and Hs512Verifier.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    static final String SECRET = "FitClubJWTSecretKey";
+
+    SecretKeySpec key;
+
+    Hs512Verifier hs512Verifier;
+
+    String token;
+
+    @Setup
+    public void setup() {
+        key = new SecretKeySpec(TextCodec.BASE64.decode(SECRET), SignatureAlgorithm.HS512.getJcaName());
+        hs512Verifier = new Hs512Verifier(key);
+        token = Jwts.builder()
+                .setSubject("12345")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(SignatureAlgorithm.HS512, key)
+                .compact();
+    }
+
+    @Benchmark
+    public long jjwtWithSecretString() {
+        Claims claims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+        return Long.parseLong(claims.getSubject()) + claims.getExpiration().getTime();
+    }
+
+    @Benchmark
+    public long jjwtWithPrecomputedKey() {
+        Claims claims = Jwts.parser().setSigningKey(key).parseClaimsJws(token).getBody();
+        return Long.parseLong(claims.getSubject()) + claims.getExpiration().getTime();
+    }
+
+    @Benchmark
+    public long hs512Verifier() {
+        VerifiedToken verified = hs512Verifier.verify(token, System.currentTimeMillis());
+        return verified.getUserId() + verified.getExpiresAt();
+    }
+}
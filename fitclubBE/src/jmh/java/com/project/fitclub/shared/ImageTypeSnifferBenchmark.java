@@ -0,0 +1,49 @@
+package com.project.fitclub.shared;
+
+import org.apache.tika.Tika;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type detection of the first 8 KB of an upload, as FileService reads it: Tika, as it ran on every upload,
+ * and ImageTypeSniffer, which only falls back to Tika for the text file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageTypeSnifferBenchmark {
+
+    @Param({"test-png.png", "test-jpg.jpg", "test-gif.gif", "test-txt.txt"})
+    String fileName;
+
+    Tika tika;
+
+    byte[] head;
+
+    @Setup
+    public void setup() throws IOException {
+        tika = new Tika();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(fileName)) {
+            byte[] content = in.readAllBytes();
+            head = Arrays.copyOf(content, Math.min(content.length, 8 * 1024));
+        }
+    }
+
+    @Benchmark
+    public String tika() {
+        return tika.detect(head);
+    }
+
+    @Benchmark
+    public String sniffer() {
+        String fileType = ImageTypeSniffer.sniff(head, head.length);
+        return fileType != null ? fileType : tika.detect(head);
+    }
+}
@@ -1,10 +1,15 @@
 package com.project.fitclub.configuration;
 
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "fitclub")
 @Data
@@ -13,6 +18,59 @@ public class AppConfiguration {
     String uploadPath;
     String profileImagesFolder = "profile";
     String attachmentsFolder = "attachments";
+    int timelineCapacity = 800;
+    int timelineCacheSize = 10000;
+    int maxPostStreams = 10000;
+    int postStreamThreads = 16;
+    int postStreamSendTimeoutMs = 5000;
+    String feedMode = "push";
+    int authorRecentPosts = 100;
+    int authorCacheSize = 10000;
+    int catchUpLimit = 100;
+    int watermarkCacheSize = 10000;
+    boolean reactionWriteBehind = false;
+    int reactionFlushSize = 500;
+    String reactionJournalPath = "reaction-journal";
+    int principalCacheSize = 10000;
+    int principalCacheTtl = 300;
+    int passwordHashingQueueSize = 100;
+    int passwordHashTargetMs = 250;
+    int passwordHashMinCost = 10;
+    int passwordHashMaxCost = 14;
+    boolean rateLimitEnabled = true;
+    int rateLimitMaxKeys = 100000;
+    Map<String, RateLimit> rateLimits = defaultRateLimits();
+    boolean concurrencyLimitEnabled = true;
+    int concurrencyLimitInitial = 20;
+    int concurrencyLimitMin = 4;
+    int concurrencyLimitMax = 400;
+    int uploadBulkheadThreads = 4;
+    int uploadBulkheadQueueSize = 50;
+    int imageBulkheadThreads = 2;
+    int imageBulkheadQueueSize = 20;
+    boolean imageVariantsEnabled = true;
+    int imageVariantThreads = 2;
+    int imageVariantQueueSize = 100;
+
+    // token bucket of an endpoint group: up to capacity requests at once, refilled at refillPerMinute
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RateLimit {
+        int capacity;
+        int refillPerMinute;
+    }
+
+    static Map<String, RateLimit> defaultRateLimits() {
+        Map<String, RateLimit> rateLimits = new HashMap<>();
+        rateLimits.put("posts", new RateLimit(10, 30));
+        rateLimits.put("reactions", new RateLimit(60, 120));
+        rateLimits.put("follows", new RateLimit(30, 60));
+        rateLimits.put("uploads", new RateLimit(10, 20));
+        rateLimits.put("login", new RateLimit(10, 20));
+        rateLimits.put("email", new RateLimit(3, 5));
+        return rateLimits;
+    }
 
     public String getFullProfileImagesPath() {
         return this.uploadPath + "/" + this.profileImagesFolder;
@@ -1,8 +1,11 @@
 package com.project.fitclub.configuration;
 
+import com.project.fitclub.security.BCryptCostCalibrator;
+import com.project.fitclub.security.BoundedPasswordEncoder;
 import com.project.fitclub.security.CustomUserDetailsService;
 import com.project.fitclub.security.JwtAuthenticationEntryPoint;
 import com.project.fitclub.security.JwtAuthenticationFilter;
+import com.project.fitclub.shared.ConcurrencyLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,11 +32,22 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtAuthenticationEntryPoint unauthorizedHandler;
 
+    @Autowired
+    AppConfiguration appConfiguration;
+
+    @Autowired
+    BCryptCostCalibrator bCryptCostCalibrator;
+
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
         return new JwtAuthenticationFilter();
     }
 
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter() {
+        return new ConcurrencyLimitFilter(appConfiguration);
+    }
+
     @Bean
     @Override
     public AuthenticationManager authenticationManagerBean() throws Exception {
@@ -57,7 +71,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .authorizeRequests()
                 .antMatchers("/images/**", "/api/1.0/users/find/{search}", "/api/1.0/login", "/api/1.0/auth/**").permitAll()
                 .antMatchers(HttpMethod.PUT, "/api/1.0/users/{id:[0-9]+}").authenticated()
+                .antMatchers(HttpMethod.POST, "/api/1.0/users/{id:[0-9]+}/image").authenticated()
                 .antMatchers(HttpMethod.GET, "/api/1.0/users/{username}/posts").authenticated()
+                .antMatchers(HttpMethod.GET, "/api/1.0/users/{username}/posts/stream").authenticated()
                 .antMatchers(HttpMethod.POST, "/api/1.0/posts/upload").authenticated()
                 .antMatchers(HttpMethod.POST, "/api/1.0/posts/**").authenticated()
                 .antMatchers(HttpMethod.POST, "/api/1.0/login").authenticated()
@@ -71,6 +87,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                 authorizeRequests().anyRequest().permitAll();
 
         http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(concurrencyLimitFilter(), JwtAuthenticationFilter.class);
 
     }
 
@@ -81,6 +98,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bCryptCostCalibrator.getCost()), Runtime.getRuntime().availableProcessors(),
+                appConfiguration.getPasswordHashingQueueSize());
     }
 }
\ No newline at end of file
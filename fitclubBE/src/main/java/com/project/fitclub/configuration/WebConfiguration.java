@@ -1,11 +1,15 @@
 package com.project.fitclub.configuration;
 
+import com.project.fitclub.shared.Bulkhead;
+import com.project.fitclub.shared.RateLimitInterceptor;
+import com.project.fitclub.shared.RateLimiter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -28,6 +32,27 @@ public class WebConfiguration implements WebMvcConfigurer {
                 .maxAge(MAX_AGE_SECS);
     }
 
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!appConfiguration.isRateLimitEnabled()) {
+            return;
+        }
+        addRateLimit(registry, "posts", "POST", "/api/1.0/posts");
+        addRateLimit(registry, "reactions", "PUT", "/api/1.0/posts/*/like", "/api/1.0/posts/*/dislike");
+        addRateLimit(registry, "follows", "PUT", "/api/1.0/users/*/follow", "/api/1.0/users/*/unfollow");
+        addRateLimit(registry, "uploads", "POST", "/api/1.0/posts/upload", "/api/1.0/users/*/image");
+        addRateLimit(registry, "login", "POST", "/api/1.0/auth/login", "/api/1.0/auth/signup");
+        addRateLimit(registry, "email", "POST", "/api/1.0/users/email-verification/**",
+                "/api/1.0/users/email-verification-check/**", "/api/1.0/users/recoverPassword");
+    }
+
+    private void addRateLimit(InterceptorRegistry registry, String group, String method, String... pathPatterns) {
+        AppConfiguration.RateLimit rateLimit = appConfiguration.getRateLimits().get(group);
+        RateLimiter rateLimiter = new RateLimiter(rateLimit.getCapacity(), rateLimit.getRefillPerMinute(),
+                appConfiguration.getRateLimitMaxKeys());
+        registry.addInterceptor(new RateLimitInterceptor(method, rateLimiter)).addPathPatterns(pathPatterns);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/images/**")
@@ -35,6 +60,16 @@ public class WebConfiguration implements WebMvcConfigurer {
                 .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS));
     }
 
+    @Bean(destroyMethod = "shutdown")
+    Bulkhead uploadBulkhead() {
+        return new Bulkhead("upload", appConfiguration.getUploadBulkheadThreads(), appConfiguration.getUploadBulkheadQueueSize());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    Bulkhead imageBulkhead() {
+        return new Bulkhead("image", appConfiguration.getImageBulkheadThreads(), appConfiguration.getImageBulkheadQueueSize());
+    }
+
     @Bean
     CommandLineRunner createUploadFolder() {
         return (args) -> {
@@ -1,10 +1,13 @@
 package com.project.fitclub.controller;
 
-import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.error.BadRequestHandler;
 import com.project.fitclub.model.User;
 import com.project.fitclub.security.JwtTokenProvider;
 import com.project.fitclub.security.UserPrincipal;
+import com.project.fitclub.security.VerifiedToken;
 import com.project.fitclub.security.payload.LoginRequest;
+import com.project.fitclub.service.PasswordRehashService;
+import com.project.fitclub.service.TokenRevocationService;
 import com.project.fitclub.service.UserService;
 import com.project.fitclub.shared.GenericResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +23,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.net.URI;
 
@@ -30,15 +34,18 @@ public class AuthController {
     @Autowired
     AuthenticationManager authenticationManager;
 
-    @Autowired
-    UserRepository userRepository;
-
     @Autowired
     JwtTokenProvider tokenProvider;
 
     @Autowired
     UserService userService;
 
+    @Autowired
+    PasswordRehashService passwordRehashService;
+
+    @Autowired
+    TokenRevocationService tokenRevocationService;
+
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
 
@@ -52,13 +59,24 @@ public class AuthController {
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = tokenProvider.generateToken(authentication);
 
-        User user = userRepository.findByUsername(loginRequest.getUsername());
-        UserPrincipal userPrincipal = UserPrincipal.create(user);
+        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+        passwordRehashService.rehashIfNeeded(userPrincipal, loginRequest.getPassword());
         userPrincipal.setJwt(jwt);
         return ResponseEntity.ok(userPrincipal);
 
     }
 
+    @PostMapping("/logout")
+    GenericResponse logout(HttpServletRequest request) {
+        String jwt = tokenProvider.resolveToken(request);
+        VerifiedToken token = jwt == null ? null : tokenProvider.verify(jwt).orElse(null);
+        if (token == null || token.getTokenId() == null || token.isStreamOnly()) {
+            throw new BadRequestHandler("No revocable token in the request");
+        }
+        tokenRevocationService.revoke(token.getTokenId(), token.getUserId(), token.getExpiresAt());
+        return new GenericResponse("Logged out!");
+    }
+
     @PostMapping("/signup")
     ResponseEntity<GenericResponse> createUser(@Valid @RequestBody User user) {
         User result = userService.save(user);
@@ -2,13 +2,13 @@ package com.project.fitclub.controller;
 
 import com.project.fitclub.model.FileAttachment;
 import com.project.fitclub.service.FileService;
+import com.project.fitclub.shared.Bulkhead;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.multipart.MultipartFile;
-
-import java.io.IOException;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 @RestController
 @RequestMapping("/api/1.0")
@@ -17,8 +17,12 @@ public class FileUploadController {
     @Autowired
     FileService fileService;
 
+    @Autowired
+    Bulkhead uploadBulkhead;
+
     @PostMapping("/posts/upload")
-    FileAttachment uploadForUserPost(MultipartFile file) throws IOException {
-        return fileService.saveAttachment(file);
+    WebAsyncTask<FileAttachment> uploadForUserPost(MultipartHttpServletRequest request) {
+        // the body is read by the bulkhead thread, a slow upload does not hold a request thread
+        return uploadBulkhead.task(() -> fileService.saveAttachment(request.getFile("file")));
     }
 }
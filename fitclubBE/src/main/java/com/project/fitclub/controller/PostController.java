@@ -4,43 +4,99 @@ import com.project.fitclub.dao.UserRepository;
 import com.project.fitclub.model.Post;
 import com.project.fitclub.model.User;
 import com.project.fitclub.model.vm.PostVM;
+import com.project.fitclub.security.JwtTokenProvider;
 import com.project.fitclub.security.UserPrincipal;
+import com.project.fitclub.service.PostNotificationService;
 import com.project.fitclub.service.PostService;
+import com.project.fitclub.service.PostViewService;
+import com.project.fitclub.service.UserService;
 import com.project.fitclub.shared.CurrentUser;
+import com.project.fitclub.shared.CursorSlice;
 import com.project.fitclub.shared.GenericResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/1.0")
 public class PostController {
 
+    // true when more new posts were missed than the catch-up returns
+    static final String POSTS_GAP_HEADER = "X-Posts-Gap";
+
     @Autowired
     PostService postService;
 
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    PostNotificationService postNotificationService;
+
+    @Autowired
+    PostViewService postViewService;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    JwtTokenProvider jwtTokenProvider;
+
     @GetMapping("/posts")
-    Page<?> getAllPosts(Pageable pageable, @CurrentUser UserPrincipal userPrincipal) {
-        if (userPrincipal != null) {
-            return postService.getPostsForUser(pageable, userPrincipal.getId()).map(PostVM::new);
+    ResponseEntity<?> getAllPosts(Pageable pageable, @CurrentUser UserPrincipal userPrincipal,
+                                  @RequestParam(name = "cursor", required = false) String cursor) {
+        Long viewerId = userPrincipal != null ? userPrincipal.getId() : null;
+        if (cursor != null) {
+            long beforeId = CursorSlice.decodeId(cursor);
+            Slice<Long> postIds = viewerId != null
+                    ? postService.getPostIdsForUser(beforeId, pageable.getPageSize(), viewerId)
+                    : postService.getAllPostIds(beforeId, pageable.getPageSize());
+            return ResponseEntity.ok(CursorSlice.of(postIds, Long::valueOf)
+                    .mapContent(ids -> postViewService.getPostVMs(ids, viewerId)));
         }
-        return postService.getAllPosts(pageable).map(PostVM::new);
+        Page<Long> postIds = viewerId != null
+                ? postService.getPostIdsForUser(pageable, viewerId)
+                : postService.getAllPostIds(pageable);
+        return ResponseEntity.ok(postViewService.getPostVMs(postIds, viewerId));
     }
 
     @GetMapping("/users/{username}/posts")
-    Page<?> getPostsOfUser(@CurrentUser UserPrincipal userPrincipal, @PathVariable String username, Pageable pageable) {
-        return postService.getPostsOfUser(username, pageable).map(PostVM::new);
+    ResponseEntity<?> getPostsOfUser(@CurrentUser UserPrincipal userPrincipal, @PathVariable String username, Pageable pageable,
+                                     @RequestParam(name = "cursor", required = false) String cursor) {
+        Long viewerId = userPrincipal != null ? userPrincipal.getId() : null;
+        if (cursor != null) {
+            Slice<Post> posts = postService.getPostsOfUser(username, CursorSlice.decodeId(cursor), pageable.getPageSize());
+            return ResponseEntity.ok(CursorSlice.of(posts, Post::getId)
+                    .mapContent(content -> postViewService.toPostVMs(content, viewerId)));
+        }
+        return ResponseEntity.ok(postViewService.toPostVMs(postService.getPostsOfUser(username, pageable), viewerId));
+    }
+
+    // EventSource sends its token in the URL, a short-lived token for the streams is sent instead of the login token
+    @PostMapping("/posts/stream/token")
+    Map<String, String> createStreamToken(@CurrentUser UserPrincipal userPrincipal) {
+        return Collections.singletonMap("token", jwtTokenProvider.createStreamToken(userPrincipal.getId()));
+    }
+
+    @GetMapping(path = "/posts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter streamNewPosts(@CurrentUser UserPrincipal userPrincipal) {
+        return postNotificationService.subscribe(userPrincipal.getId());
+    }
+
+    @GetMapping(path = "/users/{username}/posts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter streamNewPostsOfUser(@PathVariable String username) {
+        return postNotificationService.subscribeToAuthor(userService.getByUsername(username).getId());
     }
 
     @PostMapping("/posts")
@@ -61,13 +117,25 @@ public class PostController {
                                        @PathVariable(required = false) String username,
                                        @RequestParam(name = "direction", defaultValue = "after") String direction,
                                        @RequestParam(name = "count", defaultValue = "false", required = false) boolean count,
+                                       @RequestParam(name = "cursor", required = false) String cursor,
                                        Pageable pageable) {
         if (userPrincipal == null) {
             return ResponseEntity.badRequest().body("Full authentication is required!");
         }
         User user = userRepository.findByUsername(userPrincipal.getUsername());
+        if (!direction.equalsIgnoreCase("after") && cursor != null) {
+            long beforeId = cursor.isEmpty() ? id : CursorSlice.decodeId(cursor);
+            if (username != null) {
+                Slice<Post> posts = postService.getPostsOfUser(username, beforeId, pageable.getPageSize());
+                return ResponseEntity.ok(CursorSlice.of(posts, Post::getId)
+                        .mapContent(content -> postViewService.toPostVMs(content, user.getId())));
+            }
+            Slice<Long> postIds = postService.getPostIdsForUser(beforeId, pageable.getPageSize(), user.getId());
+            return ResponseEntity.ok(CursorSlice.of(postIds, Long::valueOf)
+                    .mapContent(ids -> postViewService.getPostVMs(ids, user.getId())));
+        }
         if (!direction.equalsIgnoreCase("after")) {
-            return ResponseEntity.ok(postService.getPostsBefore(id, username, user, pageable).map(PostVM::new));
+            return ResponseEntity.ok(postViewService.toPostVMs(postService.getPostsBefore(id, username, user, pageable), user.getId()));
         }
 
         if (count) {
@@ -75,8 +143,8 @@ public class PostController {
             return ResponseEntity.ok(Collections.singletonMap("count", newPostsCount));
         }
 
-        List<PostVM> newPosts = postService.getPostsAfter(id, username, user, pageable).stream()
-                .map(PostVM::new).collect(Collectors.toList());
-        return ResponseEntity.ok(newPosts);
+        Slice<Long> postIds = postService.getPostIdsAfter(id, username, user);
+        List<PostVM> newPosts = postViewService.getPostVMs(postIds.getContent(), user.getId());
+        return ResponseEntity.ok().header(POSTS_GAP_HEADER, String.valueOf(postIds.hasNext())).body(newPosts);
     }
 }
\ No newline at end of file
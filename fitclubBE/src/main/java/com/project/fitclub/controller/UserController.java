@@ -6,20 +6,29 @@ import com.project.fitclub.model.vm.UserVM;
 import com.project.fitclub.security.UserPrincipal;
 import com.project.fitclub.security.payload.NewPasswordRequest;
 import com.project.fitclub.security.payload.EmailRequest;
+import com.project.fitclub.service.FollowGraphIndex;
 import com.project.fitclub.service.UserService;
+import com.project.fitclub.shared.Bulkhead;
 import com.project.fitclub.shared.CurrentUser;
+import com.project.fitclub.shared.CursorSlice;
 import com.project.fitclub.service.VerificationTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.support.MissingServletRequestPartException;
 
 import javax.validation.Valid;
-import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/1.0")
@@ -31,31 +40,74 @@ public class UserController {
     @Autowired
     VerificationTokenService verificationTokenService;
 
+    @Autowired
+    FollowGraphIndex followGraphIndex;
+
+    @Autowired
+    Bulkhead imageBulkhead;
+
     @GetMapping("/users")
-    Page<UserVM> getUsers(@CurrentUser UserPrincipal loggedInUser, Pageable page) {
-        return userService.getUsers(loggedInUser, page).map(UserVM::new);
+    ResponseEntity<?> getUsers(@CurrentUser UserPrincipal loggedInUser, Pageable page,
+                               @RequestParam(name = "cursor", required = false) String cursor) {
+        Long viewerId = loggedInUser != null ? loggedInUser.getId() : null;
+        if (cursor != null) {
+            Slice<User> users = userService.getUsers(loggedInUser, CursorSlice.decodeKey(cursor), page.getPageSize());
+            return ResponseEntity.ok(CursorSlice.of(users, User::getUsername)
+                    .mapContent(content -> userService.toUserVMs(content, viewerId)));
+        }
+        return ResponseEntity.ok(userService.toUserVMs(userService.getUsers(loggedInUser, page), viewerId));
     }
 
     @GetMapping("/users/{username}")
     UserVM getUserByName(@PathVariable String username, @CurrentUser UserPrincipal currentUser) {
         User user = userService.getByUsername(username);
-        if (currentUser != null) {
-            User myUser = userService.getByUsername(currentUser.getUsername());
-            return new UserVM(user, myUser);
-        }
-        return new UserVM(user);
+        return toUserVM(user, currentUser != null ? currentUser.getId() : null);
     }
 
     @PutMapping("/users/{id:[0-9]+}")
     @PreAuthorize("#id == principal.id")
-    UserVM updateUser(@PathVariable long id, @Valid @RequestBody(required = false) UserUpdateVM userUpdate) throws IOException {
-        User updated = userService.update(id, userUpdate);
-        return new UserVM(updated);
+    WebAsyncTask<UserVM> updateUser(@PathVariable long id, @Valid @RequestBody(required = false) UserUpdateVM userUpdate) {
+        return imageBulkhead.task(() -> toUpdatedUserVM(userService.update(id, userUpdate)));
+    }
+
+    @PostMapping("/users/{id:[0-9]+}/image")
+    @PreAuthorize("#id == principal.id")
+    WebAsyncTask<UserVM> updateUserImage(@PathVariable long id, MultipartHttpServletRequest request) {
+        return imageBulkhead.task(() -> {
+            MultipartFile image = request.getFile("image");
+            if (image == null) {
+                throw new MissingServletRequestPartException("image");
+            }
+            return toUpdatedUserVM(userService.updateImage(id, image));
+        });
     }
 
     @GetMapping("/users/find/{searchText}")
-    Page<UserVM> getUsers(@PathVariable String searchText, Pageable page) {
-        return userService.findAll(searchText, page).map(UserVM::new);
+    Page<UserVM> getUsers(@PathVariable String searchText, Pageable page, @CurrentUser UserPrincipal loggedInUser) {
+        Long viewerId = loggedInUser != null ? loggedInUser.getId() : null;
+        return userService.toUserVMs(userService.findAll(searchText, page), viewerId);
+    }
+
+    private UserVM toUserVM(User user, Long viewerId) {
+        boolean followed = viewerId != null && followGraphIndex.follows(viewerId, user.getId());
+        return new UserVM(user, followGraphIndex.countFollows(user.getId()), followGraphIndex.countFollowers(user.getId()), followed);
+    }
+
+    private UserVM toUpdatedUserVM(User user) {
+        UserVM userVM = toUserVM(user, null);
+        userVM.setJwt(userService.reissueToken(user.getId()));
+        return userVM;
+    }
+
+    // a logged in caller gets a token with their new profile version along with the result
+    private Map<String, String> resultFor(UserPrincipal currentUser) {
+        Map<String, String> result = new HashMap<>();
+        result.put("value", "SUCCESS");
+        String jwt = currentUser != null ? userService.reissueToken(currentUser.getId()) : null;
+        if (jwt != null) {
+            result.put("jwt", jwt);
+        }
+        return result;
     }
 
     @PostMapping(path = "/users/email-verification/confirmation/{id:[0-9]+}")
@@ -90,12 +142,12 @@ public class UserController {
     }
 
     @GetMapping(path = "/users/email-verification/confirmationToken/{token}")
-    public ResponseEntity verifyEmailTokenForEmailVerification(@PathVariable String token) {
+    public ResponseEntity verifyEmailTokenForEmailVerification(@PathVariable String token, @CurrentUser UserPrincipal currentUser) {
         try {
             boolean isVerified = userService.verifyEmailToken(token);
 
             if (isVerified) {
-                return ResponseEntity.ok(Collections.singletonMap("value", "SUCCESS"));
+                return ResponseEntity.ok(resultFor(currentUser));
             } else {
                 throw new Exception("Token expired!");
             }
@@ -121,13 +173,14 @@ public class UserController {
 
     @PostMapping(path = "/users/email-verification/changeEmailToken/{token}")
     public ResponseEntity verifyEmailTokenForChangeEmail(@PathVariable String token,
-                                                         @Valid @RequestBody(required = false) EmailRequest updatedEmail) {
+                                                         @Valid @RequestBody(required = false) EmailRequest updatedEmail,
+                                                         @CurrentUser UserPrincipal currentUser) {
         try {
             User user = verificationTokenService.verifyChangeEmailToken(token);
             if (user != null) {
                 boolean isEmailChanged = userService.changeEmail(user.getEmail(), updatedEmail);
                 if (isEmailChanged) {
-                    return ResponseEntity.ok(Collections.singletonMap("value", "SUCCESS"));
+                    return ResponseEntity.ok(resultFor(currentUser));
                 }
             } else {
                 throw new Exception("Token already used or expired!");
@@ -37,8 +37,7 @@ public class UserFollowController {
     @PutMapping("/users/{id:[0-9]+}/unfollow")
     @PreAuthorize("#id != principal.id")
     GenericResponse handleUnFollow(@PathVariable long id, @CurrentUser UserPrincipal userPrincipal) {
-        User currentUser = userRepository.findByUsername(userPrincipal.getUsername());
-        userService.unfollow(id, currentUser.getId());
+        userService.unfollow(id, userPrincipal.getId());
         return new GenericResponse("You unfollowed this user.");
     }
 
@@ -2,13 +2,20 @@ package com.project.fitclub.dao;
 
 import com.project.fitclub.model.FileAttachment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
 
 public interface FileAttachmentRepository extends JpaRepository<FileAttachment, Long> {
 
-    FileAttachment findByName(String name);
-
     List<FileAttachment> findByDateBeforeAndPostIsNull(Date date);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileAttachment a SET a.variantsReady = true WHERE a.name = :name")
+    int markVariantsReady(@Param("name") String name);
 }
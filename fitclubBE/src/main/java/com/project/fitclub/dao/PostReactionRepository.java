@@ -3,10 +3,21 @@ package com.project.fitclub.dao;
 import com.project.fitclub.model.Post;
 import com.project.fitclub.model.PostReaction;
 import com.project.fitclub.model.User;
+import com.project.fitclub.model.projection.ReactionSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface PostReactionRepository extends JpaRepository<PostReaction, Long> {
 
     PostReaction findByPostAndUser(Post post, User user);
 
+    List<PostReaction> findByPostIdInAndUserIdIn(Collection<Long> postIds, Collection<Long> userIds);
+
+    @Query("SELECT r.post.id AS postId, r.reaction AS reaction FROM PostReaction r " +
+            "WHERE r.user.id = :userId AND r.post.id IN :postIds")
+    List<ReactionSummary> findByUserIdAndPostIdIn(@Param("userId") long userId, @Param("postIds") Collection<Long> postIds);
 }
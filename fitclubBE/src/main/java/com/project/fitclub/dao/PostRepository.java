@@ -1,12 +1,23 @@
 package com.project.fitclub.dao;
 
 import com.project.fitclub.model.Post;
+import com.project.fitclub.model.Reaction;
 import com.project.fitclub.model.User;
+import com.project.fitclub.model.projection.AuthorPost;
+import com.project.fitclub.model.projection.AuthorPostCount;
+import com.project.fitclub.model.projection.PostSummary;
+import com.project.fitclub.model.projection.ReactionCount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public interface PostRepository extends JpaRepository<Post, Long>, JpaSpecificationExecutor<Post> {
@@ -14,4 +25,65 @@ public interface PostRepository extends JpaRepository<Post, Long>, JpaSpecificat
     Page<Post> findByUser(User user, Pageable pageable);
 
     Page<Post> findByUserInOrderByIdDesc(Set<User> users, Pageable pageable);
-}
\ No newline at end of file
+
+    Slice<Post> findByUserAndIdLessThan(User user, long id, Pageable pageable);
+
+    @Query(value = "SELECT p.id FROM Post p", countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<Long> findPageOfIds(Pageable pageable);
+
+    @Query("SELECT p.id FROM Post p WHERE p.id < :beforeId")
+    Slice<Long> findSliceOfIdsBefore(@Param("beforeId") long beforeId, Pageable pageable);
+
+    @Query("SELECT p.id FROM Post p WHERE p.user.id IN :userIds ORDER BY p.id DESC")
+    List<Long> findIdsByUserIdIn(@Param("userIds") Collection<Long> userIds, Pageable pageable);
+
+    @Query("SELECT p.user.id AS userId, p.id AS postId FROM Post p WHERE p.user.id IN :userIds ORDER BY p.id DESC")
+    List<AuthorPost> findAuthorPostsByUserIdIn(@Param("userIds") Collection<Long> userIds, Pageable pageable);
+
+    @Query("SELECT p.user.id AS userId, COUNT(p) AS postCount FROM Post p WHERE p.user.id IN :userIds GROUP BY p.user.id")
+    List<AuthorPostCount> findPostCountsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Query(value = "SELECT p.id FROM Post p WHERE p.user.id IN :userIds ORDER BY p.id DESC",
+            countQuery = "SELECT COUNT(p) FROM Post p WHERE p.user.id IN :userIds")
+    Page<Long> findPageOfIdsByUserIdIn(@Param("userIds") Collection<Long> userIds, Pageable pageable);
+
+    @Query("SELECT p.id FROM Post p WHERE p.user.id IN :userIds AND p.id < :beforeId")
+    Slice<Long> findSliceOfIdsByUserIdInBefore(@Param("userIds") Collection<Long> userIds, @Param("beforeId") long beforeId,
+                                               Pageable pageable);
+
+    @Query("SELECT COUNT(p) FROM Post p WHERE p.user.id IN :userIds AND p.id > :afterId")
+    long countByUserIdInAfter(@Param("userIds") Collection<Long> userIds, @Param("afterId") long afterId);
+
+    @Query("SELECT p.id FROM Post p WHERE p.user.id IN :userIds AND p.id > :afterId ORDER BY p.id DESC")
+    List<Long> findIdsByUserIdInAfter(@Param("userIds") Collection<Long> userIds, @Param("afterId") long afterId,
+                                      Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.content AS content, p.timestamp AS timestamp, " +
+            "p.likeCount AS likeCount, p.dislikeCount AS dislikeCount, u.id AS userId, u.username AS username, " +
+            "u.displayName AS displayName, u.email AS email, u.image AS image, u.imageVariants AS imageVariants, " +
+            "a.name AS attachmentName, a.fileType AS attachmentFileType, a.variantsReady AS attachmentVariantsReady " +
+            "FROM Post p JOIN p.user u LEFT JOIN p.attachment a WHERE p.id IN :ids")
+    List<PostSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Post p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Post p SET p.likeCount = p.likeCount + :likes, p.dislikeCount = p.dislikeCount + :dislikes WHERE p.id = :id")
+    int addReactionCounts(@Param("id") long id, @Param("likes") long likes, @Param("dislikes") long dislikes);
+
+    @Query("SELECT p.id AS id, p.likeCount AS likeCount, p.dislikeCount AS dislikeCount, " +
+            "COALESCE(SUM(CASE WHEN r.reaction = :like THEN 1 ELSE 0 END), 0) AS likes, " +
+            "COALESCE(SUM(CASE WHEN r.reaction = :dislike THEN 1 ELSE 0 END), 0) AS dislikes " +
+            "FROM Post p LEFT JOIN p.postReactions r WHERE p.id > :afterId " +
+            "GROUP BY p.id, p.likeCount, p.dislikeCount ORDER BY p.id")
+    List<ReactionCount> findReactionCountsAfter(@Param("afterId") long afterId, @Param("like") Reaction like,
+                                                @Param("dislike") Reaction dislike, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Post p SET " +
+            "p.likeCount = (SELECT COUNT(r) FROM PostReaction r WHERE r.post.id = p.id AND r.reaction = :like), " +
+            "p.dislikeCount = (SELECT COUNT(r) FROM PostReaction r WHERE r.post.id = p.id AND r.reaction = :dislike) " +
+            "WHERE p.id IN :ids")
+    int recountReactions(@Param("ids") Collection<Long> ids, @Param("like") Reaction like, @Param("dislike") Reaction dislike);
+}
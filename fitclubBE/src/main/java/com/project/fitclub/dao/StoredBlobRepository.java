@@ -0,0 +1,7 @@
+package com.project.fitclub.dao;
+
+import com.project.fitclub.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+}
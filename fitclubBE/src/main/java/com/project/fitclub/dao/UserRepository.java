@@ -2,12 +2,19 @@ package com.project.fitclub.dao;
 
 import com.project.fitclub.model.User;
 import com.project.fitclub.model.VerificationToken;
+import com.project.fitclub.model.projection.FollowCount;
+import com.project.fitclub.model.projection.FollowEdge;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -22,4 +29,36 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Page<User> findAllUsers(@Param("searchText") String searchText, Pageable page);
 
     Page<User> findByUsernameNotAndEmailVerificationStatusIsTrue(String username, Pageable page);
+
+    Slice<User> findByUsernameNotAndEmailVerificationStatusIsTrueAndUsernameGreaterThan(String username, String after, Pageable page);
+
+    Slice<User> findByEmailVerificationStatusIsTrueAndUsernameGreaterThan(String after, Pageable page);
+
+    @Query("SELECT u.id AS followerId, f.id AS followeeId FROM User u JOIN u.follows f")
+    List<FollowEdge> findAllFollowEdges();
+
+    @Query("SELECT u.id AS userId, " +
+            "(SELECT COUNT(f) FROM User x JOIN x.follows f WHERE x.id = u.id) AS follows, " +
+            "(SELECT COUNT(x) FROM User x JOIN x.follows f WHERE f.id = u.id) AS followedBy, " +
+            "(SELECT COUNT(x) FROM User x JOIN x.follows f WHERE x.id = :viewerId AND f.id = u.id) AS followed " +
+            "FROM User u WHERE u.id IN :ids")
+    List<FollowCount> findFollowCounts(@Param("ids") Collection<Long> ids, @Param("viewerId") long viewerId);
+
+    @Query("SELECT u.lastSeenPostId FROM User u WHERE u.id = :id")
+    Long findLastSeenPostId(@Param("id") long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.lastSeenPostId = :postId WHERE u.id = :id AND u.lastSeenPostId < :postId")
+    int advanceLastSeenPostId(@Param("id") long id, @Param("postId") long postId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.imageVariants = :image WHERE u.image = :image")
+    int markImageVariantsReady(@Param("image") String image);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int replacePassword(@Param("id") long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
@@ -0,0 +1,11 @@
+package com.project.fitclub.error;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceUnavailableHandler extends RuntimeException {
+    public ServiceUnavailableHandler(String message) {
+        super(message);
+    }
+}
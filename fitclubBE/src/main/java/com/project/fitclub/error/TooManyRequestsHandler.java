@@ -0,0 +1,11 @@
+package com.project.fitclub.error;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsHandler extends RuntimeException {
+    public TooManyRequestsHandler(String message) {
+        super(message);
+    }
+}
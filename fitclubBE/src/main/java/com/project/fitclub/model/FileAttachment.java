@@ -20,6 +20,10 @@ public class FileAttachment {
 
     private String fileType;
 
+    // set by ImageVariantService once the ImageVariants.FEED copies are written
+    @Column(updatable = false)
+    private boolean variantsReady;
+
     @OneToOne
     private Post post;
 }
@@ -32,6 +32,15 @@ public class Post {
     @EqualsAndHashCode.Include
     User user;
 
+    // maintained by PostReactionService with UPDATE statements, never written through the entity
+    @JsonIgnore
+    @Column(updatable = false)
+    private long likeCount;
+
+    @JsonIgnore
+    @Column(updatable = false)
+    private long dislikeCount;
+
     @OneToOne(mappedBy = "post", orphanRemoval = true)
     private FileAttachment attachment;
 
@@ -0,0 +1,26 @@
+package com.project.fitclub.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+@Entity
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Table(indexes = @Index(columnList = "expiresAt"))
+public class RevokedToken {
+
+    // jti of the token
+    @Id
+    @Column(length = 36)
+    @EqualsAndHashCode.Include
+    private String id;
+
+    private long userId;
+
+    // epoch millis; the row is purged once the token would have expired anyway
+    private long expiresAt;
+}
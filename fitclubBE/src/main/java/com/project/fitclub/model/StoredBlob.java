@@ -0,0 +1,23 @@
+package com.project.fitclub.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+@Entity
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class StoredBlob {
+
+    // folder and name under the upload path, e.g. attachments/ab/cd/abcd...
+    @Id
+    @Column(length = 100)
+    @EqualsAndHashCode.Include
+    private String path;
+
+    // attachments and users referring to the file
+    private int refCount;
+}
@@ -1,10 +1,12 @@
 package com.project.fitclub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.project.fitclub.validation.UniqueUsername;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.NaturalId;
 
 import javax.persistence.*;
@@ -48,19 +50,32 @@ public class User extends DateAudit {
 
     String image;
 
+    // image whose ImageVariants.AVATAR copies are written, set by ImageVariantService
+    @JsonIgnore
+    @Column(updatable = false)
+    String imageVariants;
+
     @OneToOne(mappedBy = "user", cascade = {CascadeType.ALL}, orphanRemoval = true)
     private VerificationToken verificationToken;
 
     @NotNull
     private Boolean emailVerificationStatus = false;
 
+    // newest post of the feed the user has seen, maintained by ReadWatermarkService
+    @JsonIgnore
+    @Column(updatable = false)
+    private long lastSeenPostId;
+
+    @ToString.Exclude
     @OneToMany(mappedBy = "user")
     List<Post> posts = new ArrayList<>();
 
+    @ToString.Exclude
     @ManyToMany
     Set<User> followedBy = new HashSet<>();
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ToString.Exclude
+    @ManyToMany
     Set<User> follows = new HashSet<>();
 
     public User(String displayName, String username, String password) {
@@ -0,0 +1,8 @@
+package com.project.fitclub.model.projection;
+
+public interface AuthorPost {
+
+    long getUserId();
+
+    long getPostId();
+}
@@ -0,0 +1,8 @@
+package com.project.fitclub.model.projection;
+
+public interface AuthorPostCount {
+
+    long getUserId();
+
+    long getPostCount();
+}
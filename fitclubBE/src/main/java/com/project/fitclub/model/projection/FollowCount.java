@@ -0,0 +1,13 @@
+package com.project.fitclub.model.projection;
+
+public interface FollowCount {
+
+    long getUserId();
+
+    long getFollows();
+
+    long getFollowedBy();
+
+    // number of follow relations from the requesting user, 0 or 1
+    long getFollowed();
+}
@@ -0,0 +1,34 @@
+package com.project.fitclub.model.projection;
+
+import java.util.Date;
+
+public interface PostSummary {
+
+    long getId();
+
+    String getContent();
+
+    Date getTimestamp();
+
+    long getLikeCount();
+
+    long getDislikeCount();
+
+    long getUserId();
+
+    String getUsername();
+
+    String getDisplayName();
+
+    String getEmail();
+
+    String getImage();
+
+    String getImageVariants();
+
+    String getAttachmentName();
+
+    String getAttachmentFileType();
+
+    Boolean getAttachmentVariantsReady();
+}
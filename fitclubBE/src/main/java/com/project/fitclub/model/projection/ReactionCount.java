@@ -0,0 +1,14 @@
+package com.project.fitclub.model.projection;
+
+public interface ReactionCount {
+
+    long getId();
+
+    long getLikeCount();
+
+    long getDislikeCount();
+
+    long getLikes();
+
+    long getDislikes();
+}
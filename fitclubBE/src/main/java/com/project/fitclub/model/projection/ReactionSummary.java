@@ -0,0 +1,10 @@
+package com.project.fitclub.model.projection;
+
+import com.project.fitclub.model.Reaction;
+
+public interface ReactionSummary {
+
+    long getPostId();
+
+    Reaction getReaction();
+}
@@ -1,10 +1,13 @@
 package com.project.fitclub.model.vm;
 
 import com.project.fitclub.model.FileAttachment;
+import com.project.fitclub.shared.ImageVariants;
 import com.project.fitclub.shared.PostAttachment;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 @Data
 @NoArgsConstructor
 public class FileAttachmentVM {
@@ -14,8 +17,30 @@ public class FileAttachmentVM {
 
     private String fileType;
 
+    // width to file name, null until they are generated
+    private Map<Integer, String> variants;
+
+    // first frame of an animated image, which its variants would not be, shown before it plays
+    private String poster;
+
     public FileAttachmentVM(FileAttachment fileAttachment) {
-        this.setName(fileAttachment.getName());
-        this.setFileType(fileAttachment.getFileType());
+        this(fileAttachment.getName(), fileAttachment.getFileType(), fileAttachment.isVariantsReady());
+    }
+
+    public FileAttachmentVM(String name, String fileType) {
+        this.setName(name);
+        this.setFileType(fileType);
+    }
+
+    public FileAttachmentVM(String name, String fileType, boolean variantsReady) {
+        this(name, fileType);
+        if (!variantsReady) {
+            return;
+        }
+        if ("image/gif".equals(fileType)) {
+            this.setPoster(ImageVariants.FEED.getPosterName(name));
+        } else {
+            this.setVariants(ImageVariants.FEED.getNames(name));
+        }
     }
 }
@@ -1,6 +1,7 @@
 package com.project.fitclub.model.vm;
 
 import com.project.fitclub.model.Post;
+import com.project.fitclub.model.projection.PostSummary;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -21,6 +22,10 @@ public class PostVM {
     private ReactionVM reactions;
 
     public PostVM(Post post) {
+        this(post, new ReactionVM(post.getLikeCount(), post.getDislikeCount(), null));
+    }
+
+    public PostVM(Post post, ReactionVM reactions) {
         this.setId(post.getId());
         this.setContent(post.getContent());
         this.setDate(post.getTimestamp().getTime());
@@ -28,7 +33,19 @@ public class PostVM {
         if (post.getAttachment() != null) {
             this.setAttachment(new FileAttachmentVM(post.getAttachment()));
         }
-        this.setReactions(new ReactionVM(post.getPostReactions()));
+        this.setReactions(reactions);
+    }
+
+    public PostVM(PostSummary post, ReactionVM reactions) {
+        this.setId(post.getId());
+        this.setContent(post.getContent());
+        this.setDate(post.getTimestamp().getTime());
+        this.setUser(UserVM.createUserVM(post));
+        if (post.getAttachmentName() != null) {
+            this.setAttachment(new FileAttachmentVM(post.getAttachmentName(), post.getAttachmentFileType(),
+                    Boolean.TRUE.equals(post.getAttachmentVariantsReady())));
+        }
+        this.setReactions(reactions);
     }
 
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package com.project.fitclub.model.vm;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.project.fitclub.model.User;
+import com.project.fitclub.model.projection.PostSummary;
+import com.project.fitclub.shared.ImageVariants;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.ZoneId;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -20,6 +24,9 @@ public class UserVM {
 
     String image;
 
+    // width to file name, null until they are generated for the current image
+    Map<Integer, String> imageVariants;
+
     int follows;
 
     int followedBy;
@@ -30,21 +37,26 @@ public class UserVM {
 
     private long date;
 
+    // a token with the new profile version, returned to the user who changed it when tokens are self-contained
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String jwt;
+
     public UserVM(User user) {
         this.setId(user.getId());
         this.setUsername(user.getUsername());
         this.setDisplayName(user.getDisplayName());
         this.setEmail(user.getEmail());
         this.setImage(user.getImage());
-        this.setFollows(user.getFollows().size());
-        this.setFollowedBy(user.getFollowedBy().size());
+        this.setImageVariants(getImageVariants(user.getImage(), user.getImageVariants()));
         this.setEmailVerificationStatus(user.getEmailVerificationStatus());
         this.setDate(user.getCreatedAt().toEpochMilli());
     }
 
-    public UserVM(User user, User loggedInUser) {
+    public UserVM(User user, int follows, int followedBy, boolean followed) {
         this(user);
-        this.setFollowed(user.getFollowedBy().contains(loggedInUser));
+        this.setFollows(follows);
+        this.setFollowedBy(followedBy);
+        this.setFollowed(followed);
     }
 
     public static UserVM createUserVM(User user) {
@@ -54,7 +66,23 @@ public class UserVM {
         vm.setDisplayName(user.getDisplayName());
         vm.setEmail(user.getEmail());
         vm.setImage(user.getImage());
+        vm.setImageVariants(getImageVariants(user.getImage(), user.getImageVariants()));
+        return vm;
+    }
+
+    public static UserVM createUserVM(PostSummary post) {
+        UserVM vm = new UserVM();
+        vm.setId(post.getUserId());
+        vm.setUsername(post.getUsername());
+        vm.setDisplayName(post.getDisplayName());
+        vm.setEmail(post.getEmail());
+        vm.setImage(post.getImage());
+        vm.setImageVariants(getImageVariants(post.getImage(), post.getImageVariants()));
         return vm;
     }
 
+    private static Map<Integer, String> getImageVariants(String image, String imageWithVariants) {
+        return image != null && image.equals(imageWithVariants) ? ImageVariants.AVATAR.getNames(image) : null;
+    }
+
 }
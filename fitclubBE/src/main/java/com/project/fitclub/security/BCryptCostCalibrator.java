@@ -0,0 +1,68 @@
+package com.project.fitclub.security;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses the BCrypt cost at startup: the highest cost between fitclub.password-hash-min-cost and
+ * fitclub.password-hash-max-cost whose hash time on this node stays within fitclub.password-hash-target-ms.
+ * Each cost step doubles the work, so one measurement at the minimum cost is enough.
+ */
+@Component
+public class BCryptCostCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptCostCalibrator.class);
+
+    static final String SAMPLE_PASSWORD = "Calibration-P4ssword";
+
+    private final int cost;
+
+    private final long expectedHashMillis;
+
+    public BCryptCostCalibrator(AppConfiguration appConfiguration) {
+        super();
+        int minCost = appConfiguration.getPasswordHashMinCost();
+        int maxCost = appConfiguration.getPasswordHashMaxCost();
+        long targetNanos = appConfiguration.getPasswordHashTargetMs() * 1_000_000L;
+
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(minCost));
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(minCost));
+            nanos = Math.min(nanos, System.nanoTime() - start);
+        }
+        int chosen = minCost;
+        while (chosen < maxCost && nanos * 2 <= targetNanos) {
+            nanos *= 2;
+            chosen++;
+        }
+        this.cost = chosen;
+        this.expectedHashMillis = nanos / 1_000_000;
+        logger.info("BCrypt cost {} chosen, expected hash time {} ms", cost, expectedHashMillis);
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public long getExpectedHashMillis() {
+        return expectedHashMillis;
+    }
+
+    // the cost is the second field of a BCrypt hash: $2a$10$...; -1 when the hash is not BCrypt
+    public static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$' || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = hash.charAt(4);
+        char units = hash.charAt(5);
+        if (!Character.isDigit(tens) || !Character.isDigit(units)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (units - '0');
+    }
+}
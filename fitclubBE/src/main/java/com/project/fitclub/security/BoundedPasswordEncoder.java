@@ -0,0 +1,85 @@
+package com.project.fitclub.security;
+
+import com.project.fitclub.error.TooManyRequestsHandler;
+import com.project.fitclub.shared.Bulkhead;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs hashing and verification of the delegate on a pool of one thread per core with a bounded queue,
+ * so a login or signup storm cannot take the CPU from other requests. When the queue is full the
+ * request is rejected right away with 429 instead of waiting.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong matchNanos = new AtomicLong();
+
+    private final AtomicLong matchCount = new AtomicLong();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueSize) {
+        this.delegate = delegate;
+        this.executor = Bulkhead.newExecutor("password-hashing", threads, queueSize, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> {
+            long start = System.nanoTime();
+            boolean matches = delegate.matches(rawPassword, encodedPassword);
+            matchNanos.addAndGet(System.nanoTime() - start);
+            matchCount.incrementAndGet();
+            return matches;
+        });
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    // time spent verifying a password, not counting the wait in the queue
+    public double getAverageMatchMillis() {
+        long count = matchCount.get();
+        return count == 0 ? 0 : matchNanos.get() / 1_000_000.0 / count;
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsHandler("Too many requests, try again later");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -18,6 +18,9 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    UserPrincipalCache userPrincipalCache;
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String username)
@@ -29,8 +32,11 @@ public class CustomUserDetailsService implements UserDetailsService {
         return UserPrincipal.create(user);
     }
 
-    @Transactional
     public UserDetails loadUserById(Long id) {
+        return userPrincipalCache.get(id, this::loadPrincipal);
+    }
+
+    private UserPrincipal loadPrincipal(Long id) {
         Optional<User> optUser = userRepository.findById(id);
         if (!optUser.isPresent()) {
             throw new UsernameNotFoundException("User with id " + id + " was not found.");
@@ -0,0 +1,238 @@
+package com.project.fitclub.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.SignatureException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * Verifies the compact HS512 tokens issued by JwtTokenProvider without going through jjwt: the key is prepared
+ * once, every thread reuses its Mac and buffers, and only the jti, sub and exp claims are read.
+ * Tokens of any other shape are left to jjwt.
+ */
+public class Hs512Verifier {
+
+    // {"alg":"HS512"}, the header jjwt writes for our tokens
+    static final String HEADER = "eyJhbGciOiJIUzUxMiJ9";
+
+    static final int SIGNATURE_LENGTH = 64;
+
+    private static final int[] BASE64_URL = new int[128];
+
+    static {
+        java.util.Arrays.fill(BASE64_URL, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_URL[alphabet.charAt(i)] = i;
+        }
+    }
+
+    private final ThreadLocal<Buffers> buffers;
+
+    public Hs512Verifier(SecretKeySpec key) {
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(key));
+    }
+
+    // null when the token is not one of our id tokens and has to be parsed by jjwt
+    public VerifiedToken verify(String token, long now) {
+        int firstDot = token.indexOf('.');
+        int secondDot = token.indexOf('.', firstDot + 1);
+        if (firstDot != HEADER.length() || !token.startsWith(HEADER) || secondDot < 0
+                || token.indexOf('.', secondDot + 1) >= 0) {
+            return null;
+        }
+        Buffers buffers = this.buffers.get();
+        if (decode(token, secondDot + 1, token.length(), buffers.signature) != SIGNATURE_LENGTH) {
+            return null;
+        }
+
+        byte[] signed = buffers.signed(secondDot);
+        for (int i = 0; i < secondDot; i++) {
+            signed[i] = (byte) token.charAt(i);
+        }
+        try {
+            buffers.mac.update(signed, 0, secondDot);
+            buffers.mac.doFinal(buffers.expected, 0);
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+        if (!equalsInConstantTime(buffers.expected, buffers.signature, SIGNATURE_LENGTH)) {
+            throw new SignatureException("JWT signature does not match locally computed signature");
+        }
+
+        byte[] payload = buffers.payload(secondDot - firstDot);
+        int payloadLength = decode(token, firstDot + 1, secondDot, payload);
+        if (payloadLength < 0) {
+            return null;
+        }
+        return readClaims(payload, payloadLength, now);
+    }
+
+    // accepts {"jti":"<id>","sub":"<user id>","iat":<seconds>,"exp":<seconds>} in any order, nothing else
+    private static VerifiedToken readClaims(byte[] json, int length, long now) {
+        if (length < 2 || json[0] != '{' || json[length - 1] != '}') {
+            return null;
+        }
+        String tokenId = null;
+        long userId = -1;
+        long expiresAt = -1;
+        int i = 1;
+        while (i < length - 1) {
+            if (json[i] != '"') {
+                return null;
+            }
+            int keyStart = ++i;
+            i = skipString(json, i, length);
+            int keyEnd = i++;
+            if (i >= length || json[keyEnd] != '"' || json[i++] != ':') {
+                return null;
+            }
+            if (json[i] == '"') {
+                int valueStart = ++i;
+                i = skipString(json, i, length);
+                if (i >= length || json[i++] != '"') {
+                    return null;
+                }
+                if (isKey(json, keyStart, keyEnd, "jti")) {
+                    tokenId = new String(json, valueStart, i - 1 - valueStart, StandardCharsets.US_ASCII);
+                } else if (isKey(json, keyStart, keyEnd, "sub")) {
+                    userId = readNumber(json, valueStart, i - 1);
+                } else {
+                    return null;
+                }
+            } else {
+                int valueStart = i;
+                while (i < length && json[i] >= '0' && json[i] <= '9') {
+                    i++;
+                }
+                long value = readNumber(json, valueStart, i);
+                if (value >= 0 && isKey(json, keyStart, keyEnd, "exp")) {
+                    expiresAt = value * 1000;
+                } else if (value < 0 || !isKey(json, keyStart, keyEnd, "iat")) {
+                    return null;
+                }
+            }
+            if (json[i] == ',') {
+                i++;
+            } else if (i != length - 1) {
+                return null;
+            }
+        }
+        if (userId < 0 || expiresAt < 0) {
+            return null;
+        }
+        if (expiresAt < now) {
+            throw new ExpiredJwtException(null, null, "JWT expired at " + expiresAt);
+        }
+        return new VerifiedToken(tokenId, userId, expiresAt);
+    }
+
+    // index of the closing quote, or of an escape which the caller then rejects
+    private static int skipString(byte[] json, int from, int length) {
+        int i = from;
+        while (i < length && json[i] != '"' && json[i] != '\\') {
+            i++;
+        }
+        return i;
+    }
+
+    // -1 unless the range is 1 to 18 digits
+    private static long readNumber(byte[] json, int from, int to) {
+        if (to <= from || to - from > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            if (json[i] < '0' || json[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (json[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isKey(byte[] json, int from, int to, String key) {
+        if (to - from != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (json[from + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // base64url without padding into out, -1 when the text is not base64url or does not fit
+    private static int decode(String text, int from, int to, byte[] out) {
+        int buffer = 0;
+        int bits = 0;
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int value = c < 128 ? BASE64_URL[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            buffer = (buffer << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                if (length == out.length) {
+                    return -1;
+                }
+                out[length++] = (byte) (buffer >> bits);
+                buffer &= (1 << bits) - 1;
+            }
+        }
+        return length;
+    }
+
+    private static boolean equalsInConstantTime(byte[] a, byte[] b, int length) {
+        int difference = 0;
+        for (int i = 0; i < length; i++) {
+            difference |= a[i] ^ b[i];
+        }
+        return difference == 0;
+    }
+
+    static class Buffers {
+
+        final Mac mac;
+
+        final byte[] expected = new byte[SIGNATURE_LENGTH];
+
+        final byte[] signature = new byte[SIGNATURE_LENGTH];
+
+        private byte[] signed = new byte[256];
+
+        private byte[] payload = new byte[256];
+
+        Buffers(SecretKeySpec key) {
+            try {
+                mac = Mac.getInstance(key.getAlgorithm());
+                mac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        byte[] signed(int length) {
+            if (signed.length < length) {
+                signed = new byte[length];
+            }
+            return signed;
+        }
+
+        byte[] payload(int encodedLength) {
+            int length = encodedLength * 3 / 4 + 1;
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            return payload;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.project.fitclub.security;
 
+import com.project.fitclub.service.TokenRevocationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +16,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
@@ -24,16 +26,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
+    @Autowired
+    private PrincipalVersions principalVersions;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
-            String jwt = getJwtFromRequest(request);
+            // a stream token authenticates the stream it was sent to, nothing else
+            String jwt = tokenProvider.resolveToken(request);
+            boolean streamToken = !StringUtils.hasText(jwt);
+            if (streamToken) {
+                jwt = tokenProvider.resolveStreamToken(request);
+            }
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                Long userId = tokenProvider.getUserIdFromJWT(jwt);
-                UserDetails userDetails = customUserDetailsService.loadUserById(userId);
+            Optional<VerifiedToken> verified = StringUtils.hasText(jwt)
+                    ? tokenProvider.verify(jwt).filter(token -> token.isStreamOnly() == streamToken)
+                    : Optional.empty();
+            UserDetails userDetails = verified.filter(this::isNotRevoked).map(this::getUserDetails).orElse(null);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -46,11 +61,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private String getJwtFromRequest(HttpServletRequest request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-            return bearerToken.substring(7, bearerToken.length());
+    private boolean isNotRevoked(VerifiedToken token) {
+        if (token.getTokenId() != null && tokenRevocationService.isRevoked(token.getTokenId())) {
+            logger.error("Revoked JWT token");
+            return false;
+        }
+        return true;
+    }
+
+    // self-contained tokens are trusted while the profile they carry is current, stale ones are rejected
+    private UserDetails getUserDetails(VerifiedToken token) {
+        if (token.getPrincipal() == null || !principalVersions.isKnownEpoch(token.getPrincipalEpoch())) {
+            return customUserDetailsService.loadUserById(token.getUserId());
+        }
+        if (!principalVersions.isCurrent(token.getUserId(), token.getPrincipalVersion())) {
+            logger.error("Stale JWT token");
+            return null;
         }
-        return null;
+        return token.getPrincipal();
     }
 }
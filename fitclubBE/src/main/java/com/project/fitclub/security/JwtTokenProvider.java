@@ -1,14 +1,27 @@
 package com.project.fitclub.security;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
-import java.util.Date;
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 @Component
 @PropertySource(value = {"classpath:application.yml"})
@@ -16,50 +29,216 @@ public class JwtTokenProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
+    static final String USERNAME_CLAIM = "username";
+    static final String DISPLAY_NAME_CLAIM = "displayName";
+    static final String IMAGE_CLAIM = "image";
+    static final String VERIFIED_CLAIM = "verified";
+    static final String EPOCH_CLAIM = "pe";
+    static final String VERSION_CLAIM = "pv";
+    static final String SCOPE_CLAIM = "scope";
+    static final String STREAM_SCOPE = "stream";
+
+    // EventSource cannot set headers, only the stream endpoints accept a stream token as a parameter
+    static final Pattern STREAM_PATH = Pattern.compile("/api/1\\.0(/users/[^/]+)?/posts/stream");
+    static final String STREAM_TOKEN_PARAMETER = "access_token";
+
+    static final List<GrantedAuthority> AUTHORITIES = Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expirationInMs}")
     private int jwtExpirationInMs;
 
+    // long enough to open a stream; an open stream outlives its token, in URLs and access logs it soon expires
+    @Value("${jwt.streamTokenExpirationInMs:60000}")
+    private int streamTokenExpirationInMs;
+
+    @Value("${jwt.verifiedTokenCacheSize:10000}")
+    private int verifiedTokenCacheSize;
+
+    // profile values in the token, so the filter builds the principal without loading the user
+    @Value("${jwt.selfContained:false}")
+    private boolean selfContained;
+
+    @Autowired
+    private PrincipalVersions principalVersions;
+
+    // the secret is base64 text, decoded once instead of on every sign and parse
+    private SecretKeySpec signingKey;
+
+    private Hs512Verifier hs512Verifier;
+
+    // tokens already verified, keyed by a digest of the token so bearer tokens are not kept in memory
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+        hs512Verifier = new Hs512Verifier(signingKey);
+    }
+
+    public String resolveToken(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+
+    // only tokens of createStreamToken are to be accepted from here
+    public String resolveStreamToken(HttpServletRequest request) {
+        if (STREAM_PATH.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches()
+                && "GET".equals(request.getMethod())) {
+            String parameterToken = request.getParameter(STREAM_TOKEN_PARAMETER);
+            return StringUtils.hasText(parameterToken) ? parameterToken : null;
+        }
+        return null;
+    }
 
     public String generateToken(Authentication authentication) {
+        return generateToken((UserPrincipal) authentication.getPrincipal());
+    }
 
-        UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+    public String generateToken(UserPrincipal userPrincipal) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
+        if (selfContained) {
+            return createSelfContainedToken(userPrincipal, expiryDate);
+        }
         return createToken(Long.toString(userPrincipal.getId()), expiryDate);
     }
 
+    public boolean isSelfContained() {
+        return selfContained;
+    }
+
+    public String createSelfContainedToken(UserPrincipal userPrincipal, Date expiryDate) {
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(Long.toString(userPrincipal.getId()))
+                .claim(USERNAME_CLAIM, userPrincipal.getUsername())
+                .claim(DISPLAY_NAME_CLAIM, userPrincipal.getDisplayName())
+                .claim(IMAGE_CLAIM, userPrincipal.getImage())
+                .claim(VERIFIED_CLAIM, userPrincipal.getEmailVerificationStatus())
+                .claim(EPOCH_CLAIM, principalVersions.getEpoch())
+                .claim(VERSION_CLAIM, principalVersions.getVersion(userPrincipal.getId()))
+                .setIssuedAt(new Date())
+                .setExpiration(expiryDate)
+                .signWith(SignatureAlgorithm.HS512, signingKey)
+                .compact();
+    }
+
+    public String createStreamToken(long userId) {
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(Long.toString(userId))
+                .claim(SCOPE_CLAIM, STREAM_SCOPE)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + streamTokenExpirationInMs))
+                .signWith(SignatureAlgorithm.HS512, signingKey)
+                .compact();
+    }
+
     public String createToken(String user, Date expiryDate) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(user)
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(SignatureAlgorithm.HS512, signingKey)
                 .compact();
     }
 
-    public Long getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
+    // checks the signature and expiration once per token, repeated requests with the same token are a map lookup
+    public Optional<VerifiedToken> verify(String authToken) {
+        String key = digest(authToken);
+        long now = System.currentTimeMillis();
+        VerifiedToken verified = verifiedTokens.get(key);
+        if (verified != null) {
+            if (!verified.isExpired(now)) {
+                return Optional.of(verified);
+            }
+            verifiedTokens.remove(key);
+        }
+        verified = parse(authToken);
+        if (verified == null) {
+            return Optional.empty();
+        }
+        if (verifiedTokens.size() >= verifiedTokenCacheSize) {
+            verifiedTokens.values().removeIf(token -> token.isExpired(now));
+            if (verifiedTokens.size() >= verifiedTokenCacheSize) {
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(key, verified);
+        return Optional.of(verified);
+    }
+
+    private VerifiedToken parse(String authToken) {
+        try {
+            VerifiedToken verified = hs512Verifier.verify(authToken, System.currentTimeMillis());
+            if (verified != null) {
+                return verified;
+            }
+            Claims claims = Jwts.parser().setSigningKey(signingKey).parseClaimsJws(authToken).getBody();
+            if (claims.getExpiration() == null) {
+                logger.error("JWT token without expiration");
+                return null;
+            }
+            long userId = Long.parseLong(claims.getSubject());
+            if (STREAM_SCOPE.equals(claims.get(SCOPE_CLAIM))) {
+                return VerifiedToken.streamToken(claims.getId(), userId, claims.getExpiration().getTime());
+            }
+            if (claims.get(USERNAME_CLAIM) == null) {
+                return new VerifiedToken(claims.getId(), userId, claims.getExpiration().getTime());
+            }
+            UserPrincipal principal = new UserPrincipal(userId, claims.get(USERNAME_CLAIM, String.class),
+                    claims.get(DISPLAY_NAME_CLAIM, String.class), null, null, claims.get(IMAGE_CLAIM, String.class),
+                    Boolean.TRUE.equals(claims.get(VERIFIED_CLAIM, Boolean.class)), AUTHORITIES);
+            return new VerifiedToken(claims.getId(), userId, claims.getExpiration().getTime(), principal,
+                    claims.get(EPOCH_CLAIM, Number.class).longValue(), claims.get(VERSION_CLAIM, Number.class).intValue());
+        } catch (SignatureException ex) {
+            logger.error("Invalid JWT signature");
+        } catch (MalformedJwtException ex) {
+            logger.error("Invalid JWT token");
+        } catch (ExpiredJwtException ex) {
+            logger.error("Expired JWT token");
+        } catch (UnsupportedJwtException ex) {
+            logger.error("Unsupported JWT token");
+        } catch (NumberFormatException ex) {
+            logger.error("JWT subject is not a user id");
+        } catch (IllegalArgumentException ex) {
+            logger.error("JWT claims string is empty.");
+        }
+        return null;
+    }
 
-        return Long.parseLong(claims.getSubject());
+    private static String digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        sha256.reset();
+        return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
     }
 
     public String generateVerificationToken(String username) {
         return Jwts.builder()
                 .setSubject(username)
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationInMs))
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(SignatureAlgorithm.HS512, signingKey)
                 .compact();
     }
 
     public boolean validateToken(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
+            Jwts.parser().setSigningKey(signingKey).parseClaimsJws(authToken);
             return true;
         } catch (SignatureException ex) {
             logger.error("Invalid JWT signature");
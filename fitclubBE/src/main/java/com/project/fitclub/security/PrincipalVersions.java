@@ -0,0 +1,41 @@
+package com.project.fitclub.security;
+
+import com.project.fitclub.shared.TransactionHooks;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Version of the profile values carried by self-contained tokens, bumped by UserService when they change.
+ * The versions live in memory only, so tokens also carry the epoch of the instance that issued them;
+ * tokens of an earlier epoch cannot be checked and the filter loads the user instead.
+ */
+@Component
+public class PrincipalVersions {
+
+    private final long epoch = System.currentTimeMillis();
+
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public int getVersion(long userId) {
+        return versions.getOrDefault(userId, 0);
+    }
+
+    public boolean isKnownEpoch(long tokenEpoch) {
+        return tokenEpoch == epoch;
+    }
+
+    public boolean isCurrent(long userId, int tokenVersion) {
+        return getVersion(userId) == tokenVersion;
+    }
+
+    // bumped once the change is committed; tokens issued before it are rejected from then on
+    public void bump(long userId) {
+        TransactionHooks.afterCommit(() -> versions.merge(userId, 1, Integer::sum));
+    }
+}
@@ -0,0 +1,100 @@
+package com.project.fitclub.security;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.shared.TransactionHooks;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Principals of recently authenticated users, so requests with a token do not load the user on every call.
+ * Entries live for fitclub.principal-cache-ttl seconds, the least recently used are dropped past
+ * fitclub.principal-cache-size, and UserService invalidates an entry when it changes the user.
+ */
+@Component
+public class UserPrincipalCache {
+
+    int maxSize;
+
+    long ttlMs;
+
+    Map<Long, Entry> entries;
+
+    // a principal loaded while its user was invalidated is not cached, it may hold the old values
+    AtomicLong invalidations = new AtomicLong();
+
+    AtomicLong hits = new AtomicLong();
+
+    AtomicLong misses = new AtomicLong();
+
+    public UserPrincipalCache(AppConfiguration appConfiguration) {
+        super();
+        this.maxSize = appConfiguration.getPrincipalCacheSize();
+        this.ttlMs = appConfiguration.getPrincipalCacheTtl() * 1000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public UserPrincipal get(Long id, Function<Long, UserPrincipal> loader) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.expiresAt > now) {
+                hits.incrementAndGet();
+                return entry.principal;
+            }
+        }
+        misses.incrementAndGet();
+        long invalidationsBeforeLoad = invalidations.get();
+        UserPrincipal principal = loader.apply(id);
+        synchronized (entries) {
+            if (invalidations.get() == invalidationsBeforeLoad) {
+                entries.put(id, new Entry(principal, now + ttlMs));
+            }
+        }
+        return principal;
+    }
+
+    // dropped once the change is committed, so the next request loads the new values
+    public void invalidate(long id) {
+        TransactionHooks.afterCommit(() -> {
+            invalidations.incrementAndGet();
+            synchronized (entries) {
+                entries.remove(id);
+            }
+        });
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    static class Entry {
+
+        final UserPrincipal principal;
+
+        final long expiresAt;
+
+        Entry(UserPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.project.fitclub.security;
+
+/**
+ * What the filter needs of an authentication token whose signature and expiration were checked.
+ */
+public class VerifiedToken {
+
+    // jti, null for tokens issued before token ids were added
+    private final String tokenId;
+
+    private final long userId;
+
+    private final long expiresAt;
+
+    // set for self-contained tokens only
+    private final UserPrincipal principal;
+
+    private final long principalEpoch;
+
+    private final int principalVersion;
+
+    // accepted by the stream endpoints only
+    private final boolean streamOnly;
+
+    public VerifiedToken(String tokenId, long userId, long expiresAt) {
+        this(tokenId, userId, expiresAt, null, 0, 0);
+    }
+
+    public VerifiedToken(String tokenId, long userId, long expiresAt, UserPrincipal principal, long principalEpoch,
+                         int principalVersion) {
+        this(tokenId, userId, expiresAt, principal, principalEpoch, principalVersion, false);
+    }
+
+    private VerifiedToken(String tokenId, long userId, long expiresAt, UserPrincipal principal, long principalEpoch,
+                          int principalVersion, boolean streamOnly) {
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+        this.principal = principal;
+        this.principalEpoch = principalEpoch;
+        this.principalVersion = principalVersion;
+        this.streamOnly = streamOnly;
+    }
+
+    public static VerifiedToken streamToken(String tokenId, long userId, long expiresAt) {
+        return new VerifiedToken(tokenId, userId, expiresAt, null, 0, 0, true);
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public UserPrincipal getPrincipal() {
+        return principal;
+    }
+
+    public long getPrincipalEpoch() {
+        return principalEpoch;
+    }
+
+    public int getPrincipalVersion() {
+        return principalVersion;
+    }
+
+    public boolean isStreamOnly() {
+        return streamOnly;
+    }
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
+}
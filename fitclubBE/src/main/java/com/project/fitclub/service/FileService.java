@@ -3,22 +3,40 @@ package com.project.fitclub.service;
 import com.project.fitclub.configuration.AppConfiguration;
 import com.project.fitclub.dao.FileAttachmentRepository;
 import com.project.fitclub.model.FileAttachment;
-import org.apache.commons.io.FileUtils;
+import com.project.fitclub.shared.ImageTypeSniffer;
+import com.project.fitclub.shared.ImageVariants;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CharSequenceInputStream;
 import org.apache.tika.Tika;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
 import java.util.List;
-import java.util.UUID;
 
+/**
+ * Uploaded images are stored once per content: named by the SHA-256 of their bytes, computed while they are
+ * written, under two levels of hash prefix directories of their folder. StoredBlobService counts the attachments
+ * and users referring to a file, which is deleted with its variants when the last one goes away.
+ */
 @Service
 @EnableScheduling
 public class FileService {
@@ -29,62 +47,199 @@ public class FileService {
 
     FileAttachmentRepository fileAttachmentRepository;
 
-    public FileService(AppConfiguration appConfiguration, FileAttachmentRepository fileAttachmentRepository) {
+    ImageVariantService imageVariantService;
+
+    StoredBlobService storedBlobService;
+
+    // storing and releasing the same file do not interleave
+    Object[] blobLocks = new Object[64];
+
+    // enough for Tika to tell the image types apart by their magic bytes
+    static final int SNIFF_LENGTH = 8 * 1024;
+
+    static final List<String> ATTACHMENT_TYPES = Arrays.asList("image/png", "image/jpeg", "image/gif");
+
+    static final List<String> PROFILE_IMAGE_TYPES = Arrays.asList("image/png", "image/jpeg");
+
+    // upload threads are pooled, each keeps one small buffer for copying instead of holding whole files
+    ThreadLocal<ByteBuffer> copyBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    public FileService(AppConfiguration appConfiguration, FileAttachmentRepository fileAttachmentRepository,
+                       ImageVariantService imageVariantService, StoredBlobService storedBlobService) {
         super();
         this.appConfiguration = appConfiguration;
         this.fileAttachmentRepository = fileAttachmentRepository;
+        this.imageVariantService = imageVariantService;
+        this.storedBlobService = storedBlobService;
         tika = new Tika();
+        for (int i = 0; i < blobLocks.length; i++) {
+            blobLocks[i] = new Object();
+        }
     }
 
+    // decoded while it is written, the decoded image is never held in memory as a whole
     public String saveProfileImage(String base64Image) throws IOException {
-        String imageName = getRandomName();
+        try (InputStream in = decodeBase64(base64Image)) {
+            return saveProfileImage(in);
+        }
+    }
 
-        byte[] decodedBytes = Base64.getDecoder().decode(base64Image);
-        File target = new File(appConfiguration.getFullProfileImagesPath() + "/" + imageName);
-        FileUtils.writeByteArrayToFile(target, decodedBytes);
-        return imageName;
+    public String saveProfileImage(MultipartFile image) throws IOException {
+        try (InputStream in = image.getInputStream()) {
+            return saveProfileImage(in);
+        }
     }
 
-    private String getRandomName() {
-        return UUID.randomUUID().toString().replaceAll("-", "");
+    private String saveProfileImage(InputStream in) throws IOException {
+        String image = writeImage(in, appConfiguration.getProfileImagesFolder(), PROFILE_IMAGE_TYPES,
+                "Only PNG and JPG files are allowed!").getName();
+        imageVariantService.generateProfileImageVariants(Paths.get(appConfiguration.getFullProfileImagesPath(), image), image);
+        return image;
+    }
+
+    // only the first bytes are decoded, enough to detect the type
+    public String detectBase64Type(String base64) throws IOException {
+        try (InputStream in = decodeBase64(base64)) {
+            byte[] header = new byte[ImageTypeSniffer.HEADER_LENGTH];
+            int length = IOUtils.read(in, header);
+            String fileType = ImageTypeSniffer.sniff(header, length);
+            if (fileType != null) {
+                return fileType;
+            }
+            byte[] head = Arrays.copyOf(header, SNIFF_LENGTH);
+            return detectType(head, length + IOUtils.read(in, head, length, head.length - length));
+        }
     }
 
-    public FileAttachment findByName(String fileName) {
-        return fileAttachmentRepository.findByName(fileName);
+    private static InputStream decodeBase64(String base64) {
+        return Base64.getDecoder().wrap(new CharSequenceInputStream(base64, StandardCharsets.US_ASCII, 4 * 1024));
     }
 
     public String detectType(byte[] fileArr) {
-        return tika.detect(fileArr);
+        return detectType(fileArr, fileArr.length);
     }
 
-    public void deleteProfileImage(String image) {
-        try {
-            Files.deleteIfExists(Paths.get(appConfiguration.getFullProfileImagesPath() + "/" + image));
-        } catch (IOException e) {
-            e.printStackTrace();
+    // Tika only for what is not one of the image types
+    public String detectType(byte[] header, int length) {
+        String fileType = ImageTypeSniffer.sniff(header, length);
+        if (fileType != null) {
+            return fileType;
         }
+        return tika.detect(length == header.length ? header : Arrays.copyOf(header, length));
+    }
+
+    public void deleteProfileImage(String image) {
+        releaseBlob(appConfiguration.getProfileImagesFolder(), image, ImageVariants.AVATAR);
     }
 
     public FileAttachment saveAttachment(MultipartFile file) throws IOException {
         FileAttachment fileAttachment = new FileAttachment();
         fileAttachment.setDate(new Date());
-        String randomName = getRandomName();
-        fileAttachment.setName(randomName);
 
-        File target = new File(appConfiguration.getFullAttachmentsPath() + "/" + randomName);
-        byte[] fileAsByte = file.getBytes();
-        FileUtils.writeByteArrayToFile(target, fileAsByte);
-        String fileType = detectType(fileAsByte);
-        if (fileType.equalsIgnoreCase("image/png") ||
-                fileType.equalsIgnoreCase("image/jpeg") || fileType.equalsIgnoreCase("image/gif")) {
-            fileAttachment.setFileType(fileType);
-        } else {
-            throw new IOException("Only PNG, JPG and GIF files are allowed!");
+        StoredImage stored;
+        try (InputStream in = file.getInputStream()) {
+            stored = writeImage(in, appConfiguration.getAttachmentsFolder(), ATTACHMENT_TYPES, "Only PNG, JPG and GIF files are allowed!");
+        }
+        fileAttachment.setName(stored.getName());
+        fileAttachment.setFileType(stored.getFileType());
+        FileAttachment saved = fileAttachmentRepository.save(fileAttachment);
+        imageVariantService.generateAttachmentVariants(Paths.get(appConfiguration.getFullAttachmentsPath(), stored.getName()), stored.getName());
+        return saved;
+    }
+
+    // the type is detected from the first bytes, the rest is streamed to a temp file and hashed on the way
+    StoredImage writeImage(InputStream in, String folder, List<String> allowedTypes, String notAllowedMessage) throws IOException {
+        byte[] head = new byte[SNIFF_LENGTH];
+        int headLength = IOUtils.read(in, head);
+        String fileType = detectType(head, headLength);
+        if (!allowedTypes.contains(fileType.toLowerCase())) {
+            throw new IOException(notAllowedMessage);
         }
 
-        return fileAttachmentRepository.save(fileAttachment);
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(Paths.get(appConfiguration.getUploadPath(), folder), ".upload-", ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                digest.update(head, 0, headLength);
+                writeFully(channel, ByteBuffer.wrap(head, 0, headLength));
+                ReadableByteChannel source = Channels.newChannel(in);
+                ByteBuffer buffer = copyBuffer.get();
+                buffer.clear();
+                while (source.read(buffer) >= 0) {
+                    buffer.flip();
+                    buffer.mark();
+                    digest.update(buffer);
+                    buffer.reset();
+                    writeFully(channel, buffer);
+                    buffer.clear();
+                }
+            }
+            return new StoredImage(storeBlob(temp, folder, toHex(digest.digest())), fileType);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // the file is moved in place by the first reference, or again if it went missing
+    private String storeBlob(Path temp, String folder, String hash) throws IOException {
+        String name = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+        Path target = Paths.get(appConfiguration.getUploadPath(), folder, name);
+        synchronized (getBlobLock(name)) {
+            storedBlobService.addReference(folder + "/" + name);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        return name;
     }
 
+    private void releaseBlob(String folder, String name, ImageVariants variants) {
+        if (name == null) {
+            return;
+        }
+        Path original = Paths.get(appConfiguration.getUploadPath(), folder, name);
+        synchronized (getBlobLock(name)) {
+            if (!storedBlobService.removeReference(folder + "/" + name)) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(original);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            imageVariantService.deleteVariants(original, variants);
+        }
+    }
+
+    private Object getBlobLock(String name) {
+        return blobLocks[(name.hashCode() & Integer.MAX_VALUE) % blobLocks.length];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = Character.forDigit((bytes[i] >> 4) & 0xf, 16);
+            hex[2 * i + 1] = Character.forDigit(bytes[i] & 0xf, 16);
+        }
+        return new String(hex);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+
     @Scheduled(fixedRate = 60 * 60 * 1000)
     public void cleanupStorage() {
         Date oneHourAgo = new Date(System.currentTimeMillis() - (60 * 60 * 1000));
@@ -98,10 +253,26 @@ public class FileService {
     }
 
     public void deleteAttachmentImage(String image) {
-        try {
-            Files.deleteIfExists(Paths.get(appConfiguration.getFullAttachmentsPath() + "/" + image));
-        } catch (IOException e) {
-            e.printStackTrace();
+        releaseBlob(appConfiguration.getAttachmentsFolder(), image, ImageVariants.FEED);
+    }
+
+    static class StoredImage {
+
+        final String name;
+
+        final String fileType;
+
+        StoredImage(String name, String fileType) {
+            this.name = name;
+            this.fileType = fileType;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getFileType() {
+            return fileType;
         }
     }
 }
@@ -0,0 +1,169 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.model.projection.FollowEdge;
+import com.project.fitclub.shared.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Followee and follower ids of every user, kept as sorted primitive arrays instead of entity sets.
+ * Loaded once at startup and updated by UserService when a follow change is committed.
+ */
+@Service
+public class FollowGraphIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowGraphIndex.class);
+
+    static final long[] EMPTY = new long[0];
+
+    UserRepository userRepository;
+
+    Map<Long, long[]> follows = new ConcurrentHashMap<>();
+
+    Map<Long, long[]> followers = new ConcurrentHashMap<>();
+
+    public FollowGraphIndex(UserRepository userRepository) {
+        super();
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        Map<Long, List<Long>> followsLists = new HashMap<>();
+        Map<Long, List<Long>> followersLists = new HashMap<>();
+        List<FollowEdge> edges = userRepository.findAllFollowEdges();
+        for (FollowEdge edge : edges) {
+            followsLists.computeIfAbsent(edge.getFollowerId(), id -> new ArrayList<>()).add(edge.getFolloweeId());
+            followersLists.computeIfAbsent(edge.getFolloweeId(), id -> new ArrayList<>()).add(edge.getFollowerId());
+        }
+        follows.clear();
+        followers.clear();
+        followsLists.forEach((userId, ids) -> follows.put(userId, toSortedArray(ids)));
+        followersLists.forEach((userId, ids) -> followers.put(userId, toSortedArray(ids)));
+        logger.info("Loaded {} follow relations of {} users", edges.size(), followsLists.size());
+    }
+
+    // applied once the follow change is committed, so a rolled back follow never shows up
+    public void onFollow(long followerId, long followeeId) {
+        TransactionHooks.afterCommit(() -> {
+            follows.compute(followerId, (id, ids) -> insert(ids, followeeId));
+            followers.compute(followeeId, (id, ids) -> insert(ids, followerId));
+        });
+    }
+
+    public void onUnfollow(long followerId, long followeeId) {
+        TransactionHooks.afterCommit(() -> {
+            follows.computeIfPresent(followerId, (id, ids) -> delete(ids, followeeId));
+            followers.computeIfPresent(followeeId, (id, ids) -> delete(ids, followerId));
+        });
+    }
+
+    public boolean follows(long followerId, long followeeId) {
+        return Arrays.binarySearch(follows.getOrDefault(followerId, EMPTY), followeeId) >= 0;
+    }
+
+    public int countFollows(long userId) {
+        return follows.getOrDefault(userId, EMPTY).length;
+    }
+
+    public int countFollowers(long userId) {
+        return followers.getOrDefault(userId, EMPTY).length;
+    }
+
+    public void forEachFollows(long userId, LongConsumer action) {
+        for (long id : follows.getOrDefault(userId, EMPTY)) {
+            action.accept(id);
+        }
+    }
+
+    public void forEachFollower(long userId, LongConsumer action) {
+        for (long id : followers.getOrDefault(userId, EMPTY)) {
+            action.accept(id);
+        }
+    }
+
+    public List<Long> getFollowsIds(long userId) {
+        return toList(follows.getOrDefault(userId, EMPTY));
+    }
+
+    public List<Long> getFollowerIds(long userId) {
+        return toList(followers.getOrDefault(userId, EMPTY));
+    }
+
+    // users followed by both, merged from the two sorted arrays
+    public long[] intersectFollows(long userId, long otherUserId) {
+        long[] first = follows.getOrDefault(userId, EMPTY);
+        long[] second = follows.getOrDefault(otherUserId, EMPTY);
+        long[] common = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    // the arrays are never modified in place, readers always see a complete sorted array
+    private static long[] insert(long[] ids, long id) {
+        if (ids == null) {
+            return new long[]{id};
+        }
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        int insertAt = -index - 1;
+        long[] updated = new long[ids.length + 1];
+        System.arraycopy(ids, 0, updated, 0, insertAt);
+        updated[insertAt] = id;
+        System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+        return updated;
+    }
+
+    private static long[] delete(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] updated = new long[ids.length - 1];
+        System.arraycopy(ids, 0, updated, 0, index);
+        System.arraycopy(ids, index + 1, updated, index, ids.length - index - 1);
+        return updated;
+    }
+
+    private static long[] toSortedArray(List<Long> ids) {
+        long[] array = new long[ids.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        Arrays.sort(array);
+        return array;
+    }
+
+    private static List<Long> toList(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+}
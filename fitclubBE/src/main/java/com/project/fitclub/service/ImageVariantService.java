@@ -0,0 +1,207 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.FileAttachmentRepository;
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.shared.Bulkhead;
+import com.project.fitclub.shared.ImageVariants;
+import com.project.fitclub.shared.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the ImageVariants of uploaded images in the background and flags them on the attachment or user
+ * once written, until then clients keep loading the original. Variants are encoded from the decoded pixels,
+ * so no EXIF or other metadata is carried over, and animated GIFs get their first frame as a still, which
+ * FileAttachmentVM offers as a poster rather than as a variant.
+ * When the queue is full the uploading thread generates the variants itself, slowing uploads down.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    // larger images are not decoded, they would take hundreds of megabytes of heap
+    static final long MAX_PIXELS = 40_000_000;
+
+    AppConfiguration appConfiguration;
+
+    FileAttachmentRepository fileAttachmentRepository;
+
+    UserRepository userRepository;
+
+    ThreadPoolExecutor executor;
+
+    AtomicLong generated = new AtomicLong();
+
+    AtomicLong failed = new AtomicLong();
+
+    public ImageVariantService(AppConfiguration appConfiguration, FileAttachmentRepository fileAttachmentRepository, UserRepository userRepository) {
+        super();
+        this.appConfiguration = appConfiguration;
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.userRepository = userRepository;
+        this.executor = Bulkhead.newExecutor("image-variants", appConfiguration.getImageVariantThreads(),
+                appConfiguration.getImageVariantQueueSize(), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // queued once the attachment is committed
+    public void generateAttachmentVariants(Path original, String name) {
+        submit(() -> {
+            if (generate(original, ImageVariants.FEED)) {
+                fileAttachmentRepository.markVariantsReady(name);
+            }
+        });
+    }
+
+    // queued once the user with the new image is committed
+    public void generateProfileImageVariants(Path original, String image) {
+        submit(() -> {
+            if (generate(original, ImageVariants.AVATAR)) {
+                userRepository.markImageVariantsReady(image);
+            }
+        });
+    }
+
+    private void submit(Runnable task) {
+        if (appConfiguration.isImageVariantsEnabled()) {
+            TransactionHooks.afterCommit(() -> executor.execute(task));
+        }
+    }
+
+    // files are stored once per content, an upload of a known image finds its variants written already
+    public boolean generate(Path original, ImageVariants variants) {
+        if (exist(original, variants)) {
+            return true;
+        }
+        try {
+            BufferedImage source = readFirstFrame(original);
+            if (source == null) {
+                failed.incrementAndGet();
+                return false;
+            }
+            boolean opaque = !source.getColorModel().hasAlpha();
+            String format = opaque ? "jpg" : "png";
+            for (int i = 0; i < variants.getCount(); i++) {
+                int width = Math.min(variants.getWidth(i), source.getWidth());
+                Path target = original.resolveSibling(ImageVariants.getName(original.getFileName().toString(), variants.getWidth(i)));
+                write(resize(source, width, opaque), format, target);
+            }
+            // released while the variants were written, the release only deleted the variants that existed then
+            if (!Files.exists(original)) {
+                deleteVariants(original, variants);
+                return false;
+            }
+            generated.incrementAndGet();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not generate variants of {}", original, e);
+            failed.incrementAndGet();
+            return false;
+        }
+    }
+
+    private static boolean exist(Path original, ImageVariants variants) {
+        for (int i = 0; i < variants.getCount(); i++) {
+            if (!Files.exists(original.resolveSibling(ImageVariants.getName(original.getFileName().toString(), variants.getWidth(i))))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void deleteVariants(Path original, ImageVariants variants) {
+        for (int i = 0; i < variants.getCount(); i++) {
+            try {
+                Files.deleteIfExists(original.resolveSibling(ImageVariants.getName(original.getFileName().toString(), variants.getWidth(i))));
+            } catch (IOException e) {
+                logger.warn("Could not delete variant of {}: {}", original, e.getMessage());
+            }
+        }
+    }
+
+    public long getGeneratedCount() {
+        return generated.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // metadata is not even read
+    private static BufferedImage readFirstFrame(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // halves the image until close to the width, a single bilinear step would skip most source pixels
+    private static BufferedImage resize(BufferedImage source, int width, boolean opaque) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(currentWidth / 2, width);
+            currentHeight = Math.max(1, (int) Math.round((double) source.getHeight() * currentWidth / source.getWidth()));
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight,
+                    opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            current = next;
+        } while (currentWidth > width);
+        return current;
+    }
+
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".variant-", ".part");
+        try {
+            if (!ImageIO.write(image, format, temp.toFile())) {
+                throw new IOException("No writer for " + format);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
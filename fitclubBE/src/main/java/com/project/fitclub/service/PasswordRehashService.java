@@ -0,0 +1,74 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.security.BCryptCostCalibrator;
+import com.project.fitclub.security.UserPrincipal;
+import com.project.fitclub.shared.Bulkhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Raises the stored hash of a user to the calibrated BCrypt cost after a successful login, in the background.
+ * Hashes of a higher cost, written by a node that calibrated higher, are kept.
+ * Rehashing is opportunistic: when the queue is full the login is skipped and the next one tries again.
+ */
+@Service
+public class PasswordRehashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordRehashService.class);
+
+    static final int QUEUE_SIZE = 100;
+
+    UserRepository userRepository;
+
+    PasswordEncoder passwordEncoder;
+
+    int cost;
+
+    ThreadPoolExecutor executor;
+
+    AtomicLong rehashed = new AtomicLong();
+
+    public PasswordRehashService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                                 BCryptCostCalibrator bCryptCostCalibrator) {
+        super();
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.cost = bCryptCostCalibrator.getCost();
+        this.executor = Bulkhead.newExecutor("password-rehash", 1, QUEUE_SIZE, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    public void rehashIfNeeded(UserPrincipal principal, String rawPassword) {
+        String storedHash = principal.getPassword();
+        if (BCryptCostCalibrator.costOf(storedHash) >= cost) {
+            return;
+        }
+        long userId = principal.getId();
+        executor.execute(() -> {
+            try {
+                String newHash = passwordEncoder.encode(rawPassword);
+                // a password changed in the meantime is left alone
+                if (userRepository.replacePassword(userId, storedHash, newHash) > 0) {
+                    rehashed.incrementAndGet();
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not rehash password of user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    public long getRehashedCount() {
+        return rehashed.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,262 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.error.ServiceUnavailableHandler;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.shared.Bulkhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Pushes "new posts" events with the unread count of ReadWatermarkService to the open feed streams of an author and
+ * their followers, and a plain "new posts" event to the streams opened on the profile of the author.
+ * Events are coalesced per user and written by a pool of its own, so open streams hold no request thread and the
+ * shared scheduler thread only hands the sends over.
+ * A write to a client that stopped reading blocks its sender thread until the connector's write timeout, so a stream
+ * gets no second send while one is still running and is dropped once a send has been blocked for longer than
+ * postStreamSendTimeoutMs; the other streams are served by the rest of the pool meanwhile.
+ */
+@Service
+@EnableScheduling
+public class PostNotificationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostNotificationService.class);
+
+    static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000;
+
+    ReadWatermarkService readWatermarkService;
+
+    int maxStreams;
+
+    long sendTimeoutMs;
+
+    AtomicLong droppedStreams = new AtomicLong();
+
+    AtomicInteger openStreams = new AtomicInteger();
+
+    // feed streams by user
+    Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    // profile streams by author
+    Map<Long, Subscription> authorSubscriptions = new ConcurrentHashMap<>();
+
+    Set<Long> pendingUsers = ConcurrentHashMap.newKeySet();
+
+    Set<Long> pendingAuthors = ConcurrentHashMap.newKeySet();
+
+    ThreadPoolExecutor sender;
+
+    public PostNotificationService(AppConfiguration appConfiguration, ReadWatermarkService readWatermarkService) {
+        super();
+        this.readWatermarkService = readWatermarkService;
+        this.maxStreams = appConfiguration.getMaxPostStreams();
+        this.sendTimeoutMs = appConfiguration.getPostStreamSendTimeoutMs();
+        this.sender = Bulkhead.newExecutor("post-streams", appConfiguration.getPostStreamThreads(),
+                appConfiguration.getMaxPostStreams(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public SseEmitter subscribe(long userId) {
+        return subscribe(subscriptions, userId);
+    }
+
+    // the posts of one author, whether the user follows them or not
+    public SseEmitter subscribeToAuthor(long authorId) {
+        return subscribe(authorSubscriptions, authorId);
+    }
+
+    public void onPostSaved(Post post, List<Long> followerIds) {
+        long authorId = post.getUser().getId();
+        if (subscriptions.containsKey(authorId)) {
+            pendingUsers.add(authorId);
+        }
+        for (Long followerId : followerIds) {
+            if (subscriptions.containsKey(followerId)) {
+                pendingUsers.add(followerId);
+            }
+        }
+        if (authorSubscriptions.containsKey(authorId)) {
+            pendingAuthors.add(authorId);
+        }
+    }
+
+    // users with open streams whose new count is not sent yet
+    public int getPendingUserCount() {
+        return pendingUsers.size();
+    }
+
+    // authors with open profile streams not told about their new posts yet
+    public int getPendingAuthorCount() {
+        return pendingAuthors.size();
+    }
+
+    public int getOpenStreams() {
+        return openStreams.get();
+    }
+
+    // streams dropped because a send to them was blocked too long
+    public long getDroppedStreamCount() {
+        return droppedStreams.get();
+    }
+
+    @Scheduled(fixedDelay = 500)
+    public void flushPendingCounts() {
+        if (flush(pendingUsers, subscriptions, userId ->
+                Collections.singletonMap("count", readWatermarkService.getUnreadCount(userId)))) {
+            flush(pendingAuthors, authorSubscriptions, authorId -> Collections.singletonMap("authorId", authorId));
+        }
+    }
+
+    // heartbeats that do not fit in the queue are skipped, the next ones keep the stream open
+    @Scheduled(fixedRate = 15 * 1000)
+    public void sendHeartbeats() {
+        sendHeartbeats(subscriptions);
+        sendHeartbeats(authorSubscriptions);
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void dropBlockedStreams() {
+        long blockedBefore = System.currentTimeMillis() - sendTimeoutMs;
+        dropBlockedStreams(subscriptions, blockedBefore);
+        dropBlockedStreams(authorSubscriptions, blockedBefore);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+    }
+
+    private SseEmitter subscribe(Map<Long, Subscription> subscriptions, long key) {
+        if (openStreams.incrementAndGet() > maxStreams) {
+            openStreams.decrementAndGet();
+            throw new ServiceUnavailableHandler("Too many open streams, try again later");
+        }
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        subscriptions.compute(key, (id, subscription) -> {
+            if (subscription == null) {
+                subscription = new Subscription();
+            }
+            subscription.streams.add(new Stream(emitter));
+            return subscription;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriptions, key, emitter));
+        emitter.onTimeout(() -> unsubscribe(subscriptions, key, emitter));
+        emitter.onError(e -> unsubscribe(subscriptions, key, emitter));
+        return emitter;
+    }
+
+    // false when the senders are behind, the keys left are sent the latest data on a later run
+    private boolean flush(Set<Long> pending, Map<Long, Subscription> subscriptions, Function<Long, Object> data) {
+        Iterator<Long> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            Long key = iterator.next();
+            iterator.remove();
+            Subscription subscription = subscriptions.get(key);
+            if (subscription == null) {
+                continue;
+            }
+            try {
+                sender.execute(() -> {
+                    Object eventData = data.apply(key);
+                    for (Stream stream : subscription.streams) {
+                        if (!send(subscriptions, key, stream, SseEmitter.event().name("newPosts").data(eventData))) {
+                            // sent once the blocked send is done, or dropped with the stream
+                            pending.add(key);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.add(key);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sendHeartbeats(Map<Long, Subscription> subscriptions) {
+        subscriptions.forEach((key, subscription) -> {
+            try {
+                sender.execute(() -> subscription.streams.forEach(stream ->
+                        send(subscriptions, key, stream, SseEmitter.event().comment("heartbeat"))));
+            } catch (RejectedExecutionException e) {
+                logger.debug("Skipping heartbeat of stream {}, post stream senders are busy", key);
+            }
+        });
+    }
+
+    // false when the previous send to the stream is still running
+    private boolean send(Map<Long, Subscription> subscriptions, long key, Stream stream, SseEmitter.SseEventBuilder event) {
+        if (!stream.sendingSince.compareAndSet(0, System.currentTimeMillis())) {
+            return false;
+        }
+        try {
+            stream.emitter.send(event);
+            if (stream.dropped) {
+                // the client caught up after the stream was dropped, closing it makes the browser open a new one
+                stream.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping closed post stream: {}", e.getMessage());
+            unsubscribe(subscriptions, key, stream.emitter);
+            stream.emitter.completeWithError(e);
+        } finally {
+            stream.sendingSince.set(0);
+        }
+        return true;
+    }
+
+    // the emitter is not completed here, completing waits on the blocked send; the send completes it when it returns
+    private void dropBlockedStreams(Map<Long, Subscription> subscriptions, long blockedBefore) {
+        subscriptions.forEach((key, subscription) -> subscription.streams.forEach(stream -> {
+            long sendingSince = stream.sendingSince.get();
+            if (sendingSince != 0 && sendingSince < blockedBefore && !stream.dropped) {
+                logger.debug("Dropping post stream {}, a send to it is blocked", key);
+                stream.dropped = true;
+                droppedStreams.incrementAndGet();
+                unsubscribe(subscriptions, key, stream.emitter);
+            }
+        }));
+    }
+
+    private void unsubscribe(Map<Long, Subscription> subscriptions, long key, SseEmitter emitter) {
+        subscriptions.computeIfPresent(key, (id, subscription) -> {
+            if (subscription.streams.removeIf(stream -> stream.emitter == emitter)) {
+                openStreams.decrementAndGet();
+            }
+            return subscription.streams.isEmpty() ? null : subscription;
+        });
+    }
+
+    static class Subscription {
+
+        final List<Stream> streams = new CopyOnWriteArrayList<>();
+    }
+
+    // an emitter and the time its running send started, 0 while none is
+    static class Stream {
+
+        final SseEmitter emitter;
+
+        final AtomicLong sendingSince = new AtomicLong();
+
+        volatile boolean dropped;
+
+        Stream(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
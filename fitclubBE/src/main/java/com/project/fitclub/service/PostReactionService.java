@@ -1,34 +1,68 @@
 package com.project.fitclub.service;
 
 import com.project.fitclub.dao.PostReactionRepository;
+import com.project.fitclub.dao.PostRepository;
 import com.project.fitclub.model.Post;
 import com.project.fitclub.model.PostReaction;
 import com.project.fitclub.model.Reaction;
 import com.project.fitclub.model.User;
+import com.project.fitclub.model.projection.ReactionCount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
+@EnableScheduling
 public class PostReactionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PostReactionService.class);
+
+    static final int RECONCILE_BATCH_SIZE = 500;
+
     PostService postService;
 
     PostReactionRepository postReactionRepository;
 
-    public PostReactionService(PostService postService, PostReactionRepository postReactionRepository) {
+    PostRepository postRepository;
+
+    ReactionBuffer reactionBuffer;
+
+    TransactionTemplate transactionTemplate;
+
+    public PostReactionService(PostService postService, PostReactionRepository postReactionRepository, PostRepository postRepository,
+                               ReactionBuffer reactionBuffer, PlatformTransactionManager transactionManager) {
         super();
         this.postService = postService;
         this.postReactionRepository = postReactionRepository;
+        this.postRepository = postRepository;
+        this.reactionBuffer = reactionBuffer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    @Transactional
     public void like(long id, User user) {
         react(Reaction.LIKE, id, user);
     }
 
+    @Transactional
     public void dislike(long id, User user) {
         react(Reaction.DISLIKE, id, user);
     }
 
     private void react(Reaction reaction, long id, User user) {
+        if (reactionBuffer.isEnabled()) {
+            reactionBuffer.toggle(reaction, id, user);
+            return;
+        }
         Post inDB = postService.getPost(id);
         PostReaction reactionInDB = postReactionRepository.findByPostAndUser(inDB, user);
         if (reactionInDB == null) {
@@ -37,12 +71,52 @@ public class PostReactionService {
             postReaction.setPost(inDB);
             postReaction.setUser(user);
             postReactionRepository.save(postReaction);
+            addCount(id, reaction, 1);
         } else if (reactionInDB.getReaction() == reaction) {
             postReactionRepository.delete(reactionInDB);
+            addCount(id, reaction, -1);
         } else {
+            Reaction previous = reactionInDB.getReaction();
             reactionInDB.setReaction(reaction);
             postReactionRepository.save(reactionInDB);
+            addCount(id, reaction, 1);
+            addCount(id, previous, -1);
+        }
+    }
+
+    private void addCount(long id, Reaction reaction, long delta) {
+        if (reaction == Reaction.LIKE) {
+            postRepository.addReactionCounts(id, delta, 0);
+        } else {
+            postRepository.addReactionCounts(id, 0, delta);
+        }
+    }
+
+    // recounts the posts whose stored counters drifted from their reaction rows, each batch in a short transaction of its own
+    @Scheduled(initialDelay = 60 * 60 * 1000, fixedRate = 60 * 60 * 1000)
+    public int reconcileReactionCounts() {
+        int fixed = 0;
+        long afterId = 0;
+        List<ReactionCount> batch;
+        do {
+            batch = postRepository.findReactionCountsAfter(afterId, Reaction.LIKE, Reaction.DISLIKE,
+                    PageRequest.of(0, RECONCILE_BATCH_SIZE));
+            List<Long> drifted = new ArrayList<>();
+            for (ReactionCount count : batch) {
+                if (count.getLikeCount() != count.getLikes() || count.getDislikeCount() != count.getDislikes()) {
+                    drifted.add(count.getId());
+                }
+                afterId = count.getId();
+            }
+            if (!drifted.isEmpty()) {
+                fixed += transactionTemplate.execute(status -> postRepository.recountReactions(drifted, Reaction.LIKE, Reaction.DISLIKE));
+            }
+        } while (batch.size() == RECONCILE_BATCH_SIZE);
+
+        if (fixed > 0) {
+            logger.info("Reconciled reaction counters of {} posts", fixed);
         }
+        return fixed;
     }
 
-}
\ No newline at end of file
+}
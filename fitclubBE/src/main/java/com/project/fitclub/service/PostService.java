@@ -1,13 +1,19 @@
 package com.project.fitclub.service;
 
+import com.project.fitclub.configuration.AppConfiguration;
 import com.project.fitclub.dao.FileAttachmentRepository;
 import com.project.fitclub.dao.PostRepository;
 import com.project.fitclub.error.NotFoundHandler;
 import com.project.fitclub.model.FileAttachment;
 import com.project.fitclub.model.Post;
 import com.project.fitclub.model.User;
+import com.project.fitclub.shared.TransactionHooks;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
@@ -25,13 +31,31 @@ public class PostService {
 
     FileService fileService;
 
+    TimelineService timelineService;
+
+    PostNotificationService postNotificationService;
+
+    PullFeedService pullFeedService;
+
+    ReadWatermarkService readWatermarkService;
+
+    int catchUpLimit;
+
     public PostService(PostRepository postRepository, UserService userService,
-                       FileAttachmentRepository fileAttachmentRepository, FileService fileService) {
+                       FileAttachmentRepository fileAttachmentRepository, FileService fileService,
+                       TimelineService timelineService, PostNotificationService postNotificationService,
+                       PullFeedService pullFeedService, ReadWatermarkService readWatermarkService,
+                       AppConfiguration appConfiguration) {
         super();
         this.postRepository = postRepository;
         this.userService = userService;
         this.fileAttachmentRepository = fileAttachmentRepository;
         this.fileService = fileService;
+        this.timelineService = timelineService;
+        this.postNotificationService = postNotificationService;
+        this.pullFeedService = pullFeedService;
+        this.readWatermarkService = readWatermarkService;
+        this.catchUpLimit = appConfiguration.getCatchUpLimit();
     }
 
     public Post save(User user, Post post) {
@@ -42,18 +66,42 @@ public class PostService {
             inDB.setPost(post);
             post.setAttachment(inDB);
         }
-        return postRepository.save(post);
+        Post savedPost = postRepository.save(post);
+        TransactionHooks.afterCommit(() -> {
+            List<Long> followerIds = userService.getFollowerIds(user.getId());
+            if (pullFeedService.isEnabled()) {
+                pullFeedService.onPostSaved(savedPost);
+            } else {
+                timelineService.onPostSaved(savedPost, followerIds);
+            }
+            readWatermarkService.onPostSaved(savedPost, followerIds);
+            postNotificationService.onPostSaved(savedPost, followerIds);
+        });
+        return savedPost;
     }
 
     public Page<Post> getAllPosts(Pageable pageable) {
         return postRepository.findAll(pageable);
     }
 
+    public Page<Long> getAllPostIds(Pageable pageable) {
+        return postRepository.findPageOfIds(pageable);
+    }
+
+    public Slice<Long> getAllPostIds(long beforeId, int size) {
+        return postRepository.findSliceOfIdsBefore(beforeId, newestFirst(size));
+    }
+
     public Page<Post> getPostsOfUser(String username, Pageable pageable) {
         User inDB = userService.getByUsername(username);
         return postRepository.findByUser(inDB, pageable);
     }
 
+    public Slice<Post> getPostsOfUser(String username, long beforeId, int size) {
+        User inDB = userService.getByUsername(username);
+        return postRepository.findByUserAndIdLessThan(inDB, beforeId, newestFirst(size));
+    }
+
     public void deletePost(long id) {
         Optional<Post> optionalPost = postRepository.findById(id);
         if (optionalPost.isPresent()) {
@@ -61,6 +109,11 @@ public class PostService {
             if (foundPost.getAttachment() != null) {
                 fileService.deleteAttachmentImage(foundPost.getAttachment().getName());
             }
+            if (pullFeedService.isEnabled()) {
+                pullFeedService.onPostDeleted(foundPost);
+            } else {
+                timelineService.onPostDeleted(foundPost, userService.getFollowerIds(foundPost.getUser().getId()));
+            }
         }
         postRepository.deleteById(id);
     }
@@ -69,34 +122,55 @@ public class PostService {
         return postRepository.findById(id).orElseThrow(() -> new NotFoundHandler("Post not found!"));
     }
 
-    public Page<Post> getPostsForUser(Pageable pageable, Long id) {
-        User forUser = userService.getById(id);
-        Set<User> users = forUser.getFollows();
-        users.add(forUser);
-        return postRepository.findByUserInOrderByIdDesc(users, pageable);
+    public Page<Long> getPostIdsForUser(Pageable pageable, Long id) {
+        Optional<Page<Long>> fromMemory = pullFeedService.isEnabled()
+                ? pullFeedService.getPage(id, pageable)
+                : timelineService.getPage(id, pageable);
+        if (fromMemory.isPresent()) {
+            return fromMemory.get();
+        }
+        return postRepository.findPageOfIdsByUserIdIn(getFeedUserIds(id), pageable);
     }
 
-
-    public long countPostsAfter(long id, String username, User loggedInUser) {
-        Set<User> users = new HashSet<>();
-        if (username != null) {
-            User forUser = userService.getByUsername(username);
-            users.add(forUser);
-        } else {
-            User forUser = userService.getByUsername(loggedInUser.getUsername());
-            users = forUser.getFollows();
-            users.add(forUser);
+    public Slice<Long> getPostIdsForUser(long beforeId, int size, Long id) {
+        Optional<Slice<Long>> fromMemory = pullFeedService.isEnabled()
+                ? pullFeedService.getSliceBefore(id, beforeId, size)
+                : timelineService.getSliceBefore(id, beforeId, size);
+        if (fromMemory.isPresent()) {
+            return fromMemory.get();
         }
+        return postRepository.findSliceOfIdsByUserIdInBefore(getFeedUserIds(id), beforeId, newestFirst(size));
+    }
 
-        Specification<Post> query = Specification.where(getPostsAfter(id)).and(getUsersIn(users));
-        return postRepository.count(query);
+    private List<Long> getFeedUserIds(long id) {
+        List<Long> userIds = new ArrayList<>(userService.getFollowsIds(id));
+        userIds.add(id);
+        return userIds;
     }
 
-    public List<Post> getPostsAfter(long id, String username, User loggedInUser, Pageable pageable) {
-        Specification<Post> spec = Specification.where(getPostsAfter(id));
-        spec = handleUsersSet(username, loggedInUser, spec);
 
-        return postRepository.findAll(spec, pageable.getSort());
+    public long countPostsAfter(long id, String username, User loggedInUser) {
+        if (username == null) {
+            return readWatermarkService.getUnreadCount(loggedInUser.getId(), id);
+        }
+        long userId = userService.getByUsername(username).getId();
+        return postRepository.countByUserIdInAfter(Collections.singletonList(userId), id);
+    }
+
+    // at most catchUpLimit newest posts; hasNext marks a gap of missed posts between id and the returned ones
+    public Slice<Long> getPostIdsAfter(long id, String username, User loggedInUser) {
+        List<Long> userIds = username != null
+                ? Collections.singletonList(userService.getByUsername(username).getId())
+                : getFeedUserIds(loggedInUser.getId());
+        List<Long> postIds = postRepository.findIdsByUserIdInAfter(userIds, id, PageRequest.of(0, catchUpLimit + 1));
+        boolean gap = postIds.size() > catchUpLimit;
+        if (gap) {
+            postIds = new ArrayList<>(postIds.subList(0, catchUpLimit));
+        }
+        if (username == null && !postIds.isEmpty()) {
+            readWatermarkService.advance(loggedInUser.getId(), postIds.get(0));
+        }
+        return new SliceImpl<>(postIds, PageRequest.of(0, catchUpLimit), gap);
     }
 
     public Page<Post> getPostsBefore(long id, String username, User loggedInUser, Pageable pageable) {
@@ -105,34 +179,25 @@ public class PostService {
         return postRepository.findAll(spec, pageable);
     }
 
-    private Specification<Post> getUsersIn(Set<User> users) {
+    private Pageable newestFirst(int size) {
+        return PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    private Specification<Post> getUserIdsIn(Collection<Long> userIds) {
         return (root, query, cb) -> {
             query.orderBy(cb.desc(root.get("id")));
-            CriteriaBuilder.In<User> inResult = cb.in(root.get("user"));
-            users.forEach(inResult::value);
+            CriteriaBuilder.In<Long> inResult = cb.in(root.get("user").get("id"));
+            userIds.forEach(inResult::value);
             return inResult;
         };
     }
 
     private Specification<Post> handleUsersSet(String username, User loggedInUser, Specification<Post> spec) {
-        Set<User> users = new HashSet<>();
         if (username != null) {
             User forUser = userService.getByUsername(username);
-            users.add(forUser);
-            spec = spec.and(getUsersIn(users));
-        } else {
-            users = loggedInUser.getFollows();
-            users.add(loggedInUser);
-            spec = spec.and(getUsersIn(users));
+            return spec.and(getUserIdsIn(Collections.singletonList(forUser.getId())));
         }
-        return spec;
-    }
-
-    private Specification<Post> getPostsAfter(long id) {
-        return (root, query, cb) -> {
-            query.orderBy(cb.desc(root.get("id")));
-            return cb.greaterThan(root.get("id"), id);
-        };
+        return spec.and(getUserIdsIn(getFeedUserIds(loggedInUser.getId())));
     }
 
     private Specification<Post> getPostsBefore(long id) {
@@ -0,0 +1,90 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.dao.PostReactionRepository;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.Reaction;
+import com.project.fitclub.model.projection.PostSummary;
+import com.project.fitclub.model.projection.ReactionSummary;
+import com.project.fitclub.model.vm.PostVM;
+import com.project.fitclub.model.vm.ReactionVM;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Builds post pages with the counters stored on the post and one query for the reactions of the viewer,
+ * whatever the page size. Feed pages are read from projections, so no entity is loaded for them.
+ */
+@Service
+public class PostViewService {
+
+    PostRepository postRepository;
+
+    PostReactionRepository postReactionRepository;
+
+    ReactionBuffer reactionBuffer;
+
+    public PostViewService(PostRepository postRepository, PostReactionRepository postReactionRepository, ReactionBuffer reactionBuffer) {
+        super();
+        this.postRepository = postRepository;
+        this.postReactionRepository = postReactionRepository;
+        this.reactionBuffer = reactionBuffer;
+    }
+
+    public Page<PostVM> getPostVMs(Page<Long> postIds, Long viewerId) {
+        return new PageImpl<>(getPostVMs(postIds.getContent(), viewerId), postIds.getPageable(), postIds.getTotalElements());
+    }
+
+    // ids that no longer exist are skipped, the order of postIds is kept
+    public List<PostVM> getPostVMs(List<Long> postIds, Long viewerId) {
+        if (postIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, PostSummary> posts = new HashMap<>();
+        for (PostSummary post : postRepository.findSummariesByIdIn(postIds)) {
+            posts.put(post.getId(), post);
+        }
+        Map<Long, Reaction> viewerReactions = getViewerReactions(postIds, viewerId);
+
+        List<PostVM> postVMs = new ArrayList<>(postIds.size());
+        for (Long postId : postIds) {
+            PostSummary post = posts.get(postId);
+            if (post != null) {
+                ReactionVM reactions = new ReactionVM(post.getLikeCount(), post.getDislikeCount(), viewerReactions.get(postId));
+                postVMs.add(new PostVM(post, reactionBuffer.applyPending(postId, viewerId, reactions)));
+            }
+        }
+        return postVMs;
+    }
+
+    public Page<PostVM> toPostVMs(Page<Post> posts, Long viewerId) {
+        return new PageImpl<>(toPostVMs(posts.getContent(), viewerId), posts.getPageable(), posts.getTotalElements());
+    }
+
+    public List<PostVM> toPostVMs(List<Post> posts, Long viewerId) {
+        List<Long> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+        Map<Long, Reaction> viewerReactions = getViewerReactions(postIds, viewerId);
+
+        List<PostVM> postVMs = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            ReactionVM reactions = new ReactionVM(post.getLikeCount(), post.getDislikeCount(), viewerReactions.get(post.getId()));
+            postVMs.add(new PostVM(post, reactionBuffer.applyPending(post.getId(), viewerId, reactions)));
+        }
+        return postVMs;
+    }
+
+    private Map<Long, Reaction> getViewerReactions(List<Long> postIds, Long viewerId) {
+        Map<Long, Reaction> reactions = new HashMap<>();
+        if (viewerId == null || postIds.isEmpty()) {
+            return reactions;
+        }
+        for (ReactionSummary reaction : postReactionRepository.findByUserIdAndPostIdIn(viewerId, postIds)) {
+            reactions.put(reaction.getPostId(), reaction.getReaction());
+        }
+        return reactions;
+    }
+}
@@ -0,0 +1,392 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.projection.AuthorPost;
+import com.project.fitclub.model.projection.AuthorPostCount;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Pull model of the home feed, enabled with fitclub.feed-mode=pull. Only the newest post ids of every author
+ * are kept, in fixed-size ring buffers, and a feed page is merged from the buffers of the followed authors.
+ * Saving a post costs the same for any number of followers; pages past the buffered horizon come from the database.
+ * The buffers of the fitclub.author-cache-size most recently used authors are kept, missing ones are loaded
+ * together with one query.
+ */
+@Service
+public class PullFeedService {
+
+    static final String PULL = "pull";
+
+    // rows read when loading cold buffers; the older posts of these authors are left to the database
+    static final int MAX_LOADED_POSTS = 10000;
+
+    PostRepository postRepository;
+
+    FollowGraphIndex followGraphIndex;
+
+    boolean enabled;
+
+    int capacity;
+
+    int maxAuthors;
+
+    Map<Long, RecentPosts> authors;
+
+    public PullFeedService(PostRepository postRepository, FollowGraphIndex followGraphIndex, AppConfiguration appConfiguration) {
+        super();
+        this.postRepository = postRepository;
+        this.followGraphIndex = followGraphIndex;
+        this.enabled = PULL.equalsIgnoreCase(appConfiguration.getFeedMode());
+        this.capacity = appConfiguration.getAuthorRecentPosts();
+        this.maxAuthors = appConfiguration.getAuthorCacheSize();
+        this.authors = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RecentPosts> eldest) {
+                return size() > maxAuthors;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void onPostSaved(Post post) {
+        RecentPosts recentPosts = get(post.getUser().getId());
+        if (recentPosts != null) {
+            recentPosts.add(post.getId());
+        }
+    }
+
+    // a buffer that lost track of its horizon is dropped and loaded again on the next read
+    public void onPostDeleted(Post post) {
+        long authorId = post.getUser().getId();
+        RecentPosts recentPosts = get(authorId);
+        if (recentPosts != null && !recentPosts.remove(post.getId())) {
+            synchronized (authors) {
+                authors.remove(authorId, recentPosts);
+            }
+        }
+    }
+
+    // empty when the page goes past the buffered horizon and has to be read from the database
+    public Optional<Page<Long>> getPage(long userId, Pageable pageable) {
+        int limit = (int) Math.min(pageable.getOffset() + pageable.getPageSize() + 1, Integer.MAX_VALUE);
+        Merge merge = merge(userId, Long.MAX_VALUE, limit);
+        if (merge == null) {
+            return Optional.empty();
+        }
+        List<Long> postIds = merge.postIds;
+        int from = (int) Math.min(pageable.getOffset(), postIds.size());
+        int to = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), postIds.size());
+        return Optional.of(new PageImpl<>(new ArrayList<>(postIds.subList(from, to)), pageable, merge.total));
+    }
+
+    public Optional<Slice<Long>> getSliceBefore(long userId, long beforeId, int size) {
+        Merge merge = merge(userId, beforeId, size + 1);
+        if (merge == null) {
+            return Optional.empty();
+        }
+        List<Long> postIds = merge.postIds;
+        boolean hasNext = postIds.size() > size;
+        if (hasNext) {
+            postIds = new ArrayList<>(postIds.subList(0, size));
+        }
+        return Optional.of(new SliceImpl<>(postIds, PageRequest.of(0, size), hasNext));
+    }
+
+    // k-way merge of the author buffers with a heap; null when the result cannot be told from memory alone
+    Merge merge(long userId, long beforeId, int limit) {
+        List<Long> authorIds = new ArrayList<>(followGraphIndex.getFollowsIds(userId));
+        authorIds.add(userId);
+
+        List<RecentPosts> buffers = getBuffers(authorIds);
+        if (buffers == null) {
+            return null;
+        }
+
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(authorIds.size());
+        // every post from the horizon on is in one of the buffers
+        long horizon = Long.MIN_VALUE;
+        long total = 0;
+        for (RecentPosts recentPosts : buffers) {
+            long[] ids = recentPosts.snapshot();
+            horizon = Math.max(horizon, recentPosts.getHorizon());
+            total += recentPosts.getPostCount();
+            Cursor cursor = new Cursor(ids, beforeId);
+            if (cursor.hasCurrent()) {
+                heap.add(cursor);
+            }
+        }
+
+        List<Long> postIds = new ArrayList<>(Math.min(limit, 64));
+        while (postIds.size() < limit) {
+            Cursor cursor = heap.poll();
+            if (cursor == null) {
+                return horizon == Long.MIN_VALUE ? new Merge(postIds, total) : null;
+            }
+            long postId = cursor.current();
+            if (postId < horizon) {
+                return null;
+            }
+            postIds.add(postId);
+            cursor.advance();
+            if (cursor.hasCurrent()) {
+                heap.add(cursor);
+            }
+        }
+        return new Merge(postIds, total);
+    }
+
+    // null while another request loads one of the buffers, the caller reads from the database
+    private List<RecentPosts> getBuffers(List<Long> authorIds) {
+        List<RecentPosts> buffers = new ArrayList<>(authorIds.size());
+        Map<Long, RecentPosts> cold = new HashMap<>();
+        synchronized (authors) {
+            for (Long authorId : authorIds) {
+                RecentPosts recentPosts = authors.get(authorId);
+                if (recentPosts == null) {
+                    recentPosts = new RecentPosts(capacity);
+                    authors.put(authorId, recentPosts);
+                    cold.put(authorId, recentPosts);
+                }
+                buffers.add(recentPosts);
+            }
+        }
+        if (!cold.isEmpty()) {
+            load(cold);
+        }
+        for (RecentPosts recentPosts : buffers) {
+            if (!recentPosts.isLoaded()) {
+                return null;
+            }
+        }
+        return buffers;
+    }
+
+    // the buffers are already in the map while the database is read, posts saved meanwhile are added to them
+    private void load(Map<Long, RecentPosts> cold) {
+        try {
+            int limit = (int) Math.min((long) cold.size() * (capacity + 1), MAX_LOADED_POSTS);
+            List<AuthorPost> posts = postRepository.findAuthorPostsByUserIdIn(cold.keySet(), PageRequest.of(0, limit));
+            Map<Long, List<Long>> postIds = new HashMap<>();
+            for (AuthorPost post : posts) {
+                postIds.computeIfAbsent(post.getUserId(), id -> new ArrayList<>()).add(post.getPostId());
+            }
+            Map<Long, Long> postCounts = new HashMap<>();
+            for (AuthorPostCount postCount : postRepository.findPostCountsByUserIdIn(cold.keySet())) {
+                postCounts.put(postCount.getUserId(), postCount.getPostCount());
+            }
+            // once the limit is reached, only the posts from the last one read are known for every author
+            long horizon = posts.size() < limit ? Long.MIN_VALUE : posts.get(posts.size() - 1).getPostId();
+            for (Map.Entry<Long, RecentPosts> entry : cold.entrySet()) {
+                Long authorId = entry.getKey();
+                entry.getValue().load(postIds.getOrDefault(authorId, Collections.emptyList()), horizon,
+                        postCounts.getOrDefault(authorId, 0L));
+            }
+        } catch (RuntimeException e) {
+            synchronized (authors) {
+                cold.forEach(authors::remove);
+            }
+            throw e;
+        }
+    }
+
+    private RecentPosts get(long authorId) {
+        synchronized (authors) {
+            return authors.get(authorId);
+        }
+    }
+
+    public int getCachedAuthorCount() {
+        synchronized (authors) {
+            return authors.size();
+        }
+    }
+
+    static class Merge {
+
+        final List<Long> postIds;
+
+        // posts of the merged authors, including the ones past the buffers
+        final long total;
+
+        Merge(List<Long> postIds, long total) {
+            this.postIds = postIds;
+            this.total = total;
+        }
+    }
+
+    static class Cursor implements Comparable<Cursor> {
+
+        private final long[] ids;
+
+        private int index;
+
+        Cursor(long[] ids, long beforeId) {
+            this.ids = ids;
+            while (index < ids.length && ids[index] >= beforeId) {
+                index++;
+            }
+        }
+
+        boolean hasCurrent() {
+            return index < ids.length;
+        }
+
+        long current() {
+            return ids[index];
+        }
+
+        void advance() {
+            index++;
+        }
+
+        // newest post first
+        @Override
+        public int compareTo(Cursor other) {
+            return Long.compare(other.current(), current());
+        }
+    }
+
+    // ring buffer of the newest post ids of one author, oldest at head. Every post of the author from the horizon on
+    // is buffered; the horizon is Long.MIN_VALUE while the buffer holds every post of the author
+    static class RecentPosts {
+
+        private final long[] ids;
+
+        private int head;
+
+        private int size;
+
+        private long horizon = Long.MIN_VALUE;
+
+        // posts of the author, including the ones past the horizon
+        private long postCount;
+
+        private boolean loaded;
+
+        RecentPosts(int capacity) {
+            this.ids = new long[capacity];
+        }
+
+        // merged with the ids added while the database was read
+        synchronized void load(List<Long> newestFirst, long horizon, long postCount) {
+            TreeSet<Long> merged = new TreeSet<>(newestFirst);
+            long addedOnly = 0;
+            for (int i = 0; i < size; i++) {
+                if (merged.add(ids[index(i)])) {
+                    addedOnly++;
+                }
+            }
+            if (merged.size() > ids.length) {
+                while (merged.size() > ids.length) {
+                    merged.pollFirst();
+                }
+                horizon = merged.isEmpty() ? Long.MAX_VALUE : Math.max(horizon, merged.first());
+            }
+            head = 0;
+            size = 0;
+            for (Long id : merged) {
+                ids[size++] = id;
+            }
+            this.horizon = horizon;
+            this.postCount = postCount + addedOnly;
+            loaded = true;
+        }
+
+        // ids are kept ascending; a rare out of order commit is inserted at its place, an id loaded already is skipped
+        synchronized void add(long postId) {
+            if (indexOf(postId) >= 0) {
+                return;
+            }
+            postCount++;
+            boolean dropped = size == ids.length;
+            if (dropped) {
+                if (size == 0 || postId < ids[head]) {
+                    horizon = size == 0 ? Long.MAX_VALUE : Math.max(horizon, ids[head]);
+                    return;
+                }
+                head = index(1);
+                size--;
+            }
+            int position = size;
+            while (position > 0 && ids[index(position - 1)] > postId) {
+                ids[index(position)] = ids[index(position - 1)];
+                position--;
+            }
+            ids[index(position)] = postId;
+            size++;
+            if (dropped) {
+                horizon = Math.max(horizon, ids[head]);
+            }
+        }
+
+        // false when the removed id was the only one left and the horizon is unknown
+        synchronized boolean remove(long postId) {
+            int found = indexOf(postId);
+            if (found < 0) {
+                if (postId < horizon) {
+                    // past the horizon, still counted
+                    postCount--;
+                }
+                return true;
+            }
+            for (int i = found; i < size - 1; i++) {
+                ids[index(i)] = ids[index(i + 1)];
+            }
+            size--;
+            postCount--;
+            return horizon == Long.MIN_VALUE || size > 0;
+        }
+
+        synchronized long getHorizon() {
+            return horizon;
+        }
+
+        synchronized long getPostCount() {
+            return postCount;
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        // newest first
+        synchronized long[] snapshot() {
+            long[] copy = new long[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = ids[index(size - 1 - i)];
+            }
+            return copy;
+        }
+
+        // offset from the oldest id or -1, the scan starts at the newest where saved posts usually are
+        private int indexOf(long postId) {
+            for (int i = size - 1; i >= 0; i--) {
+                long id = ids[index(i)];
+                if (id == postId) {
+                    return i;
+                }
+                if (id < postId) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        private int index(int offset) {
+            return (head + offset) % ids.length;
+        }
+    }
+}
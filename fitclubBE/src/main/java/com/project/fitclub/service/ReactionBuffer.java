@@ -0,0 +1,465 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostReactionRepository;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.PostReaction;
+import com.project.fitclub.model.Reaction;
+import com.project.fitclub.model.User;
+import com.project.fitclub.model.vm.ReactionVM;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind mode of the reactions, enabled with fitclub.reaction-write-behind.
+ * Toggles are applied in memory per (post, user) and only the net state is written, in JDBC batches,
+ * every few hundred ms or once fitclub.reaction-flush-size entries are pending. Every toggle is appended
+ * to a local journal first, so the toggles not yet flushed by a crashed instance are replayed on start.
+ */
+@Service
+@EnableScheduling
+public class ReactionBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactionBuffer.class);
+
+    static final String NONE = "NONE";
+
+    static final String SEGMENT_PREFIX = "reactions-";
+
+    static final String SEGMENT_SUFFIX = ".log";
+
+    boolean enabled;
+
+    int flushSize;
+
+    Path journalPath;
+
+    PostService postService;
+
+    PostRepository postRepository;
+
+    PostReactionRepository postReactionRepository;
+
+    UserRepository userRepository;
+
+    TransactionTemplate transactionTemplate;
+
+    // toggles not yet picked up by a flush
+    Map<ReactionKey, PendingReaction> pending = new ConcurrentHashMap<>();
+
+    // toggles being written by the running flush, still visible to reads until it commits
+    Map<ReactionKey, PendingReaction> inFlight = new ConcurrentHashMap<>();
+
+    // like/dislike counts of pending and in flight toggles, not yet in the post counters
+    Map<Long, PostDelta> deltas = new ConcurrentHashMap<>();
+
+    ReentrantLock flushLock = new ReentrantLock();
+
+    // number of committed flushes, a toggle that read the database before one has to read it again
+    AtomicLong flushes = new AtomicLong();
+
+    ExecutorService flushExecutor;
+
+    // one size triggered flush waits in the executor at most
+    AtomicBoolean flushQueued = new AtomicBoolean();
+
+    final Object journalLock = new Object();
+
+    BufferedWriter journal;
+
+    long segment;
+
+    public ReactionBuffer(AppConfiguration appConfiguration, PostService postService, PostRepository postRepository,
+                          PostReactionRepository postReactionRepository, UserRepository userRepository,
+                          PlatformTransactionManager transactionManager) {
+        super();
+        this.enabled = appConfiguration.isReactionWriteBehind();
+        this.flushSize = appConfiguration.getReactionFlushSize();
+        this.journalPath = Paths.get(appConfiguration.getReactionJournalPath());
+        this.postService = postService;
+        this.postRepository = postRepository;
+        this.postReactionRepository = postReactionRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(journalPath);
+        List<Path> segments = listSegments();
+        Map<ReactionKey, Reaction> journaled = new LinkedHashMap<>();
+        for (Path path : segments) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] fields = line.split(" ");
+                // a torn last line of a crashed instance
+                if (fields.length != 3) {
+                    continue;
+                }
+                ReactionKey key = new ReactionKey(Long.parseLong(fields[0]), Long.parseLong(fields[1]));
+                journaled.put(key, NONE.equals(fields[2]) ? null : Reaction.valueOf(fields[2]));
+            }
+        }
+        segment = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1));
+        openSegment(segment + 1);
+        flushExecutor = Executors.newSingleThreadExecutor();
+
+        if (!journaled.isEmpty()) {
+            Map<ReactionKey, Reaction> stored = loadStored(journaled.keySet());
+            journaled.forEach((key, current) -> {
+                PendingReaction entry = new PendingReaction(stored.get(key));
+                pending.put(key, entry);
+                apply(key, entry, current, false);
+            });
+            logger.info("Replaying {} reactions from the journal", journaled.size());
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        flushExecutor.shutdown();
+        flush();
+        synchronized (journalLock) {
+            journal.close();
+        }
+    }
+
+    // same toggle rules as PostReactionService: the same reaction twice removes it
+    public void toggle(Reaction reaction, long postId, User user) {
+        ReactionKey key = new ReactionKey(postId, user.getId());
+        while (true) {
+            boolean loaded = false;
+            Reaction stored = null;
+            long readAfter = flushes.get();
+            if (!pending.containsKey(key) && !inFlight.containsKey(key)) {
+                Post post = postService.getPost(postId);
+                PostReaction inDB = postReactionRepository.findByPostAndUser(post, user);
+                stored = inDB == null ? null : inDB.getReaction();
+                loaded = true;
+            }
+            if (toggle(key, reaction, loaded, stored, readAfter)) {
+                break;
+            }
+        }
+        if (pending.size() >= flushSize && flushQueued.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushQueued.set(false);
+                flush();
+            });
+        }
+    }
+
+    // false when the state of the key was flushed meanwhile and has to be read again from the database
+    private boolean toggle(ReactionKey key, Reaction reaction, boolean loaded, Reaction stored, long readAfter) {
+        boolean[] applied = {true};
+        pending.compute(key, (k, entry) -> {
+            if (entry == null) {
+                PendingReaction flushing = inFlight.get(k);
+                if (flushing != null) {
+                    entry = new PendingReaction(flushing.current);
+                } else if (loaded && flushes.get() == readAfter) {
+                    entry = new PendingReaction(stored);
+                } else {
+                    applied[0] = false;
+                    return null;
+                }
+            }
+            apply(k, entry, entry.current == reaction ? null : reaction, true);
+            return entry;
+        });
+        return applied[0];
+    }
+
+    private void apply(ReactionKey key, PendingReaction entry, Reaction current, boolean journaled) {
+        addDelta(key.getPostId(), entry.current, current);
+        entry.current = current;
+        if (journaled) {
+            append(key, current);
+        }
+    }
+
+    public ReactionVM applyPending(long postId, Long viewerId, ReactionVM reactions) {
+        if (!enabled) {
+            return reactions;
+        }
+        PostDelta delta = deltas.get(postId);
+        if (delta != null) {
+            reactions.setLikeCount(reactions.getLikeCount() + delta.likes.get());
+            reactions.setDislikeCount(reactions.getDislikeCount() + delta.dislikes.get());
+        }
+        if (viewerId != null) {
+            ReactionKey key = new ReactionKey(postId, viewerId);
+            PendingReaction entry = pending.get(key);
+            if (entry == null) {
+                entry = inFlight.get(key);
+            }
+            if (entry != null) {
+                reactions.setLoggedUserReaction(entry.current);
+            }
+        }
+        return reactions;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // posts whose counters differ from the database
+    public int getPendingPostCount() {
+        return deltas.size();
+    }
+
+    @Scheduled(fixedDelayString = "${fitclub.reaction-flush-interval:300}")
+    public void flush() {
+        if (!enabled || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            long flushedSegment = rotate();
+            Map<ReactionKey, PendingReaction> batch = new HashMap<>();
+            for (ReactionKey key : pending.keySet()) {
+                pending.computeIfPresent(key, (k, entry) -> {
+                    inFlight.put(k, entry);
+                    batch.put(k, entry);
+                    return null;
+                });
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+            } catch (RuntimeException e) {
+                logger.warn("Could not flush {} reactions, retrying on the next flush", batch.size(), e);
+                restore(batch);
+                return;
+            }
+            // counted before the entries leave inFlight, so a toggle that finds neither sees the new count
+            flushes.incrementAndGet();
+            batch.forEach((key, entry) -> {
+                addDelta(key.getPostId(), entry.current, entry.original);
+                inFlight.remove(key, entry);
+            });
+            deleteSegmentsUpTo(flushedSegment);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(Map<ReactionKey, PendingReaction> batch) {
+        Set<Long> postIds = batch.keySet().stream().map(ReactionKey::getPostId).collect(Collectors.toSet());
+        Set<Long> userIds = batch.keySet().stream().map(ReactionKey::getUserId).collect(Collectors.toSet());
+        // reactions to posts deleted meanwhile are dropped
+        Set<Long> existingPostIds = new HashSet<>(postRepository.findExistingIds(postIds));
+        Map<ReactionKey, PostReaction> rows = new HashMap<>();
+        for (PostReaction row : postReactionRepository.findByPostIdInAndUserIdIn(postIds, userIds)) {
+            rows.put(new ReactionKey(row.getPost().getId(), row.getUser().getId()), row);
+        }
+
+        List<PostReaction> saved = new ArrayList<>();
+        List<PostReaction> deleted = new ArrayList<>();
+        Map<Long, long[]> counts = new HashMap<>();
+        batch.forEach((key, entry) -> {
+            if (!existingPostIds.contains(key.getPostId())) {
+                return;
+            }
+            PostReaction row = rows.get(key);
+            Reaction stored = row == null ? null : row.getReaction();
+            if (stored == entry.current) {
+                return;
+            }
+            if (row == null) {
+                row = new PostReaction();
+                row.setPost(postRepository.getById(key.getPostId()));
+                row.setUser(userRepository.getById(key.getUserId()));
+            }
+            if (entry.current == null) {
+                deleted.add(row);
+            } else {
+                row.setReaction(entry.current);
+                saved.add(row);
+            }
+            long[] count = counts.computeIfAbsent(key.getPostId(), id -> new long[2]);
+            count[0] += (entry.current == Reaction.LIKE ? 1 : 0) - (stored == Reaction.LIKE ? 1 : 0);
+            count[1] += (entry.current == Reaction.DISLIKE ? 1 : 0) - (stored == Reaction.DISLIKE ? 1 : 0);
+        });
+
+        postReactionRepository.saveAll(saved);
+        if (!deleted.isEmpty()) {
+            postReactionRepository.deleteAllInBatch(deleted);
+        }
+        counts.forEach((postId, count) -> {
+            if (count[0] != 0 || count[1] != 0) {
+                postRepository.addReactionCounts(postId, count[0], count[1]);
+            }
+        });
+    }
+
+    // the toggles of a failed flush go back in front of the ones made while it was running
+    private void restore(Map<ReactionKey, PendingReaction> batch) {
+        batch.forEach((key, entry) -> {
+            pending.compute(key, (k, newer) -> {
+                if (newer == null) {
+                    return entry;
+                }
+                newer.original = entry.original;
+                return newer;
+            });
+            inFlight.remove(key, entry);
+        });
+    }
+
+    private Map<ReactionKey, Reaction> loadStored(Set<ReactionKey> keys) {
+        Set<Long> postIds = keys.stream().map(ReactionKey::getPostId).collect(Collectors.toSet());
+        Set<Long> userIds = keys.stream().map(ReactionKey::getUserId).collect(Collectors.toSet());
+        Map<ReactionKey, Reaction> stored = new HashMap<>();
+        for (PostReaction row : postReactionRepository.findByPostIdInAndUserIdIn(postIds, userIds)) {
+            stored.put(new ReactionKey(row.getPost().getId(), row.getUser().getId()), row.getReaction());
+        }
+        return stored;
+    }
+
+    private void addDelta(long postId, Reaction before, Reaction after) {
+        long likes = (after == Reaction.LIKE ? 1 : 0) - (before == Reaction.LIKE ? 1 : 0);
+        long dislikes = (after == Reaction.DISLIKE ? 1 : 0) - (before == Reaction.DISLIKE ? 1 : 0);
+        if (likes == 0 && dislikes == 0) {
+            return;
+        }
+        // a post whose toggles cancel out or are flushed leaves no entry behind
+        deltas.compute(postId, (id, delta) -> {
+            if (delta == null) {
+                delta = new PostDelta();
+            }
+            delta.likes.addAndGet(likes);
+            delta.dislikes.addAndGet(dislikes);
+            return delta.isZero() ? null : delta;
+        });
+    }
+
+    private void append(ReactionKey key, Reaction current) {
+        synchronized (journalLock) {
+            try {
+                journal.write(key.getPostId() + " " + key.getUserId() + " " + (current == null ? NONE : current.name()));
+                journal.newLine();
+                journal.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // new toggles go to a new segment, the previous ones can be deleted once the flush committed
+    private long rotate() {
+        synchronized (journalLock) {
+            try {
+                journal.close();
+                long flushedSegment = segment;
+                openSegment(segment + 1);
+                return flushedSegment;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = number;
+        journal = Files.newBufferedWriter(journalPath.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void deleteSegmentsUpTo(long number) {
+        try {
+            for (Path path : listSegments()) {
+                if (segmentNumber(path) <= number) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete flushed reaction journal segments", e);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(journalPath)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted(Comparator.comparingLong(this::segmentNumber))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Value
+    static class ReactionKey {
+
+        long postId;
+
+        long userId;
+    }
+
+    static class PendingReaction {
+
+        // state in the database when the toggles started, null for no reaction
+        volatile Reaction original;
+
+        volatile Reaction current;
+
+        PendingReaction(Reaction original) {
+            this.original = original;
+            this.current = original;
+        }
+    }
+
+    static class PostDelta {
+
+        final AtomicLong likes = new AtomicLong();
+
+        final AtomicLong dislikes = new AtomicLong();
+
+        boolean isZero() {
+            return likes.get() == 0 && dislikes.get() == 0;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.shared.TransactionHooks;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Newest feed post every user has seen, stored on the user row, with a counter of the feed posts saved after it.
+ * The counter is counted from the database when the watermark moves and incremented when followed authors post,
+ * so polling for new posts is a memory read. It is the one unread counter of the feed, PostNotificationService
+ * pushes it to the open streams. The watermarks of the fitclub.watermark-cache-size most recently used users are kept.
+ */
+@Service
+public class ReadWatermarkService {
+
+    // older seen ids polled by clients behind the watermark, such as a second tab
+    static final int MAX_OLDER_COUNTS = 8;
+
+    PostRepository postRepository;
+
+    UserRepository userRepository;
+
+    FollowGraphIndex followGraphIndex;
+
+    int maxWatermarks;
+
+    Map<Long, Watermark> watermarks;
+
+    public ReadWatermarkService(PostRepository postRepository, UserRepository userRepository, FollowGraphIndex followGraphIndex,
+                                AppConfiguration appConfiguration) {
+        super();
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.followGraphIndex = followGraphIndex;
+        this.maxWatermarks = appConfiguration.getWatermarkCacheSize();
+        this.watermarks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Watermark> eldest) {
+                return size() > maxWatermarks;
+            }
+        };
+    }
+
+    // a post committed while the counter is recounted can be counted twice, until the watermark moves again
+    public void onPostSaved(Post post, List<Long> followerIds) {
+        increment(post.getUser().getId(), post.getId());
+        for (Long followerId : followerIds) {
+            increment(followerId, post.getId());
+        }
+    }
+
+    public long getUnreadCount(long userId) {
+        Watermark watermark = get(userId);
+        synchronized (watermark) {
+            return watermark.unread;
+        }
+    }
+
+    // seenId is the newest post the client has; the posts between an older id and the watermark are counted
+    // from the database once per watermark, later polls add the in-memory counter to them. A newer id moves the
+    // watermark, up to the newest post of the feed since the client sends it
+    public long getUnreadCount(long userId, long seenId) {
+        Watermark watermark = get(userId);
+        synchronized (watermark) {
+            if (seenId == watermark.lastSeenPostId) {
+                return watermark.unread;
+            }
+            if (seenId < watermark.lastSeenPostId) {
+                Long older = watermark.olderCounts.get(seenId);
+                if (older == null) {
+                    if (watermark.olderCounts.size() >= MAX_OLDER_COUNTS) {
+                        watermark.olderCounts.clear();
+                    }
+                    older = Math.max(countAfter(userId, seenId) - watermark.unread, 0);
+                    watermark.olderCounts.put(seenId, older);
+                }
+                return older + watermark.unread;
+            }
+            long newestSeenId = Math.min(seenId, newestPostId(userId));
+            if (newestSeenId > watermark.lastSeenPostId) {
+                moveTo(userId, watermark, newestSeenId);
+            }
+            return watermark.unread;
+        }
+    }
+
+    public void advance(long userId, long seenId) {
+        Watermark watermark = get(userId);
+        synchronized (watermark) {
+            if (seenId > watermark.lastSeenPostId) {
+                moveTo(userId, watermark, seenId);
+            }
+        }
+    }
+
+    // the followed authors changed; counted again on the next read, after FollowGraphIndex applied the change
+    public void evict(long userId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (watermarks) {
+                watermarks.remove(userId);
+            }
+        });
+    }
+
+    public int getCachedWatermarkCount() {
+        synchronized (watermarks) {
+            return watermarks.size();
+        }
+    }
+
+    // loaded under the lock of its own watermark, so other users are not held up by the database
+    private Watermark get(long userId) {
+        Watermark watermark;
+        synchronized (watermarks) {
+            watermark = watermarks.computeIfAbsent(userId, id -> new Watermark());
+        }
+        synchronized (watermark) {
+            if (!watermark.loaded) {
+                load(userId, watermark);
+            }
+        }
+        return watermark;
+    }
+
+    // posts saved before the watermark is loaded are in its count
+    private void increment(long userId, long postId) {
+        Watermark watermark;
+        synchronized (watermarks) {
+            watermark = watermarks.get(userId);
+        }
+        if (watermark != null) {
+            synchronized (watermark) {
+                if (watermark.loaded && postId > watermark.lastSeenPostId) {
+                    watermark.unread++;
+                }
+            }
+        }
+    }
+
+    private void moveTo(long userId, Watermark watermark, long seenId) {
+        userRepository.advanceLastSeenPostId(userId, seenId);
+        watermark.lastSeenPostId = seenId;
+        watermark.unread = countAfter(userId, seenId);
+        watermark.olderCounts.clear();
+    }
+
+    private void load(long userId, Watermark watermark) {
+        Long stored = userRepository.findLastSeenPostId(userId);
+        watermark.lastSeenPostId = stored == null ? 0 : stored;
+        watermark.unread = countAfter(userId, watermark.lastSeenPostId);
+        watermark.loaded = true;
+    }
+
+    private long countAfter(long userId, long postId) {
+        return postRepository.countByUserIdInAfter(getFeedUserIds(userId), postId);
+    }
+
+    private long newestPostId(long userId) {
+        List<Long> postIds = postRepository.findIdsByUserIdIn(getFeedUserIds(userId), PageRequest.of(0, 1));
+        return postIds.isEmpty() ? 0 : postIds.get(0);
+    }
+
+    private List<Long> getFeedUserIds(long userId) {
+        List<Long> userIds = new ArrayList<>(followGraphIndex.getFollowsIds(userId));
+        userIds.add(userId);
+        return userIds;
+    }
+
+    static class Watermark {
+
+        boolean loaded;
+
+        long lastSeenPostId;
+
+        long unread;
+
+        // seen id to the number of posts after it up to the watermark
+        final Map<Long, Long> olderCounts = new HashMap<>();
+    }
+}
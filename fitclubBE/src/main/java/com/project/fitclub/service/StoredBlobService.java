@@ -0,0 +1,47 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.dao.StoredBlobRepository;
+import com.project.fitclub.model.StoredBlob;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Reference counts of the files FileService stores by content, one per attachment or user pointing at the file.
+ * Every change commits on its own while FileService holds the lock of the file, so the count and the file on
+ * disk do not depend on the outcome of the caller's transaction.
+ */
+@Service
+public class StoredBlobService {
+
+    StoredBlobRepository storedBlobRepository;
+
+    public StoredBlobService(StoredBlobRepository storedBlobRepository) {
+        super();
+        this.storedBlobRepository = storedBlobRepository;
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void addReference(String path) {
+        StoredBlob blob = storedBlobRepository.findById(path).orElseGet(() -> new StoredBlob(path, 0));
+        blob.setRefCount(blob.getRefCount() + 1);
+        storedBlobRepository.save(blob);
+    }
+
+    // true once nothing refers to the file, also for files stored before they were counted
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean removeReference(String path) {
+        Optional<StoredBlob> blob = storedBlobRepository.findById(path);
+        if (!blob.isPresent()) {
+            return true;
+        }
+        if (blob.get().getRefCount() <= 1) {
+            storedBlobRepository.delete(blob.get());
+            return true;
+        }
+        blob.get().setRefCount(blob.get().getRefCount() - 1);
+        return false;
+    }
+}
@@ -0,0 +1,287 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.shared.TransactionHooks;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Materialized home timelines: the newest post ids of a user and of the users they follow.
+ * Filled on write, bounded by the configured capacity and rebuilt from the database for cold users.
+ * Only the fitclub.timeline-cache-size most recently used timelines are kept.
+ */
+@Service
+public class TimelineService {
+
+    PostRepository postRepository;
+
+    FollowGraphIndex followGraphIndex;
+
+    int capacity;
+
+    int maxTimelines;
+
+    Map<Long, Timeline> timelines;
+
+    public TimelineService(PostRepository postRepository, FollowGraphIndex followGraphIndex, AppConfiguration appConfiguration) {
+        super();
+        this.postRepository = postRepository;
+        this.followGraphIndex = followGraphIndex;
+        this.capacity = appConfiguration.getTimelineCapacity();
+        this.maxTimelines = appConfiguration.getTimelineCacheSize();
+        this.timelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Timeline> eldest) {
+                return size() > maxTimelines;
+            }
+        };
+    }
+
+    public void onPostSaved(Post post, List<Long> followerIds) {
+        push(post.getUser().getId(), post.getId());
+        for (Long followerId : followerIds) {
+            push(followerId, post.getId());
+        }
+    }
+
+    public void onPostDeleted(Post post, List<Long> followerIds) {
+        remove(post.getUser().getId(), post.getId());
+        for (Long followerId : followerIds) {
+            remove(followerId, post.getId());
+        }
+    }
+
+    // the timeline is rebuilt from the database on the next read, once the follow change is committed
+    public void evict(long userId) {
+        TransactionHooks.afterCommit(() -> {
+            synchronized (timelines) {
+                timelines.remove(userId);
+            }
+        });
+    }
+
+    // empty when the page goes past the ids kept in memory and has to be read from the database
+    public Optional<Page<Long>> getPage(long userId, Pageable pageable) {
+        Timeline timeline = getLoaded(userId);
+        long[] postIds = timeline == null ? null : timeline.slice(pageable.getOffset(), pageable.getPageSize());
+        if (postIds == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new PageImpl<>(toList(postIds), pageable, timeline.total()));
+    }
+
+    // keyset variant of getPage: the posts older than beforeId, without counting the timeline
+    public Optional<Slice<Long>> getSliceBefore(long userId, long beforeId, int size) {
+        Timeline timeline = getLoaded(userId);
+        long[] postIds = timeline == null ? null : timeline.sliceBefore(beforeId, size + 1);
+        if (postIds == null) {
+            return Optional.empty();
+        }
+        boolean hasNext = postIds.length > size;
+        if (hasNext) {
+            postIds = Arrays.copyOf(postIds, size);
+        }
+        return Optional.of(new SliceImpl<>(toList(postIds), PageRequest.of(0, size), hasNext));
+    }
+
+    private List<Long> toList(long[] postIds) {
+        List<Long> ids = new ArrayList<>(postIds.length);
+        for (long postId : postIds) {
+            ids.add(postId);
+        }
+        return ids;
+    }
+
+    // null while another request rebuilds the timeline, the caller reads its page from the database
+    private Timeline getLoaded(long userId) {
+        Timeline timeline;
+        boolean cold = false;
+        synchronized (timelines) {
+            timeline = timelines.get(userId);
+            if (timeline == null) {
+                timeline = new Timeline(capacity);
+                timelines.put(userId, timeline);
+                cold = true;
+            }
+        }
+        if (cold) {
+            rebuild(userId, timeline);
+        }
+        return timeline.isLoaded() ? timeline : null;
+    }
+
+    // the timeline is already in the map while the database is read, posts saved meanwhile are pushed into it
+    private void rebuild(long userId, Timeline timeline) {
+        try {
+            List<Long> userIds = new ArrayList<>(followGraphIndex.getFollowsIds(userId));
+            userIds.add(userId);
+            List<Long> postIds = postRepository.findIdsByUserIdIn(userIds, PageRequest.of(0, capacity + 1));
+            long total = postIds.size() > capacity ? postRepository.countByUserIdInAfter(userIds, 0) : postIds.size();
+            timeline.load(postIds, total);
+        } catch (RuntimeException e) {
+            synchronized (timelines) {
+                timelines.remove(userId, timeline);
+            }
+            throw e;
+        }
+    }
+
+    private Timeline get(long userId) {
+        synchronized (timelines) {
+            return timelines.get(userId);
+        }
+    }
+
+    private void push(long userId, long postId) {
+        Timeline timeline = get(userId);
+        if (timeline != null) {
+            timeline.add(postId);
+        }
+    }
+
+    private void remove(long userId, long postId) {
+        Timeline timeline = get(userId);
+        if (timeline != null) {
+            timeline.remove(postId);
+        }
+    }
+
+    public int getCachedTimelineCount() {
+        synchronized (timelines) {
+            return timelines.size();
+        }
+    }
+
+    // post ids sorted descending; once older ids were dropped, pages past the end come from the database.
+    // the array grows with the timeline up to the capacity
+    static class Timeline {
+
+        private static final int INITIAL_IDS = 16;
+
+        private final int capacity;
+
+        private long[] ids;
+
+        private int size;
+
+        private boolean truncated;
+
+        // posts in the feed, including the ones older than the ids kept
+        private long total;
+
+        private boolean loaded;
+
+        Timeline(int capacity) {
+            this.capacity = capacity;
+            this.ids = new long[Math.min(capacity, INITIAL_IDS)];
+        }
+
+        // merged with the ids pushed while the database was read
+        synchronized void load(List<Long> postIds, long totalInDatabase) {
+            TreeSet<Long> merged = new TreeSet<>(Comparator.reverseOrder());
+            merged.addAll(postIds);
+            long pushedOnly = 0;
+            for (int i = 0; i < size; i++) {
+                if (merged.add(ids[i])) {
+                    pushedOnly++;
+                }
+            }
+            size = Math.min(merged.size(), capacity);
+            ids = new long[Math.max(size, ids.length)];
+            Iterator<Long> iterator = merged.iterator();
+            for (int i = 0; i < size; i++) {
+                ids[i] = iterator.next();
+            }
+            truncated = merged.size() > capacity;
+            total = totalInDatabase + pushedOnly;
+            loaded = true;
+        }
+
+        synchronized void add(long postId) {
+            int index = indexOf(postId);
+            if (index >= 0) {
+                return;
+            }
+            total++;
+            int insertAt = -index - 1;
+            if (insertAt >= capacity || (truncated && insertAt == size)) {
+                truncated = true;
+                return;
+            }
+            if (size == capacity) {
+                size--;
+                truncated = true;
+            } else if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.min(capacity, ids.length * 2));
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = postId;
+            size++;
+        }
+
+        synchronized void remove(long postId) {
+            int index = indexOf(postId);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+                total--;
+            } else if (truncated && -index - 1 == size) {
+                // older than the ids kept, still counted in the total
+                total--;
+            }
+        }
+
+        synchronized long[] slice(long offset, int limit) {
+            if (truncated && offset + limit > size) {
+                return null;
+            }
+            int from = (int) Math.min(offset, size);
+            int to = (int) Math.min(offset + limit, size);
+            return Arrays.copyOfRange(ids, from, to);
+        }
+
+        synchronized long[] sliceBefore(long postId, int limit) {
+            int index = indexOf(postId);
+            return slice(index >= 0 ? index + 1 : -index - 1, limit);
+        }
+
+        synchronized long total() {
+            return total;
+        }
+
+        synchronized boolean isLoaded() {
+            return loaded;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        // same contract as Arrays.binarySearch, over descending ids
+        private int indexOf(long postId) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = ids[mid];
+                if (midId > postId) {
+                    low = mid + 1;
+                } else if (midId < postId) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
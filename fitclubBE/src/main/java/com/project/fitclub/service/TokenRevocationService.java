@@ -0,0 +1,69 @@
+package com.project.fitclub.service;
+
+import com.project.fitclub.dao.RevokedTokenRepository;
+import com.project.fitclub.model.RevokedToken;
+import com.project.fitclub.shared.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Revoked token ids, stored in the database and mirrored in a Bloom filter that is rebuilt periodically.
+ * A token that is not in the filter was never revoked, which is the answer for nearly every request;
+ * only filter hits are checked against the database. Revocations made on another instance are seen
+ * after its next rebuild.
+ */
+@Service
+@EnableScheduling
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    RevokedTokenRepository revokedTokenRepository;
+
+    volatile BloomFilter filter = new BloomFilter(0);
+
+    // revoked while the next filter was being built, added to it when it replaces the current one
+    List<String> revokedDuringRebuild = new ArrayList<>();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository) {
+        super();
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    public void revoke(String tokenId, long userId, long expiresAt) {
+        revokedTokenRepository.save(new RevokedToken(tokenId, userId, expiresAt));
+        synchronized (this) {
+            filter.add(tokenId);
+            revokedDuringRebuild.add(tokenId);
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return filter.mightContain(tokenId) && revokedTokenRepository.existsById(tokenId);
+    }
+
+    @PostConstruct
+    @Scheduled(initialDelayString = "${fitclub.revocation-rebuild-interval:60000}",
+            fixedDelayString = "${fitclub.revocation-rebuild-interval:60000}")
+    public void rebuild() {
+        long now = System.currentTimeMillis();
+        revokedTokenRepository.deleteExpired(now);
+        List<String> tokenIds = revokedTokenRepository.findIdsOfUnexpired(now);
+        // room to grow until the next rebuild
+        BloomFilter next = new BloomFilter(tokenIds.size() * 2 + 1024);
+        tokenIds.forEach(next::add);
+        synchronized (this) {
+            revokedDuringRebuild.forEach(next::add);
+            revokedDuringRebuild.clear();
+            filter = next;
+        }
+        logger.debug("Rebuilt token revocation filter with {} revoked tokens", tokenIds.size());
+    }
+}
@@ -2,26 +2,39 @@ package com.project.fitclub.service;
 
 import com.project.fitclub.dao.UserRepository;
 import com.project.fitclub.error.NotFoundHandler;
+import com.project.fitclub.error.TooManyRequestsHandler;
 import com.project.fitclub.model.User;
+import com.project.fitclub.model.projection.FollowCount;
 import com.project.fitclub.model.vm.UserUpdateVM;
+import com.project.fitclub.model.vm.UserVM;
 import com.project.fitclub.security.JwtTokenProvider;
+import com.project.fitclub.security.PrincipalVersions;
 import com.project.fitclub.security.UserPrincipal;
+import com.project.fitclub.security.UserPrincipalCache;
 import com.project.fitclub.security.payload.NewPasswordRequest;
 import com.project.fitclub.security.payload.EmailRequest;
 import com.project.fitclub.shared.EmailSenderService;
 import com.project.fitclub.model.VerificationToken;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    static final long ANONYMOUS = -1;
+
     UserRepository userRepository;
 
     PasswordEncoder passwordEncoder;
@@ -34,8 +47,21 @@ public class UserService {
 
     VerificationTokenService verificationTokenService;
 
+    TimelineService timelineService;
+
+    FollowGraphIndex followGraphIndex;
+
+    ReadWatermarkService readWatermarkService;
+
+    UserPrincipalCache userPrincipalCache;
+
+    PrincipalVersions principalVersions;
+
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, FileService fileService,
-                       JwtTokenProvider jwtTokenProvider, EmailSenderService emailSender, VerificationTokenService verificationTokenService) {
+                       JwtTokenProvider jwtTokenProvider, EmailSenderService emailSender, VerificationTokenService verificationTokenService,
+                       TimelineService timelineService, FollowGraphIndex followGraphIndex,
+                       ReadWatermarkService readWatermarkService, UserPrincipalCache userPrincipalCache,
+                       PrincipalVersions principalVersions) {
         super();
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
@@ -43,6 +69,11 @@ public class UserService {
         this.jwtTokenProvider = jwtTokenProvider;
         this.emailSender = emailSender;
         this.verificationTokenService = verificationTokenService;
+        this.timelineService = timelineService;
+        this.followGraphIndex = followGraphIndex;
+        this.readWatermarkService = readWatermarkService;
+        this.userPrincipalCache = userPrincipalCache;
+        this.principalVersions = principalVersions;
     }
 
     public User save(User user) {
@@ -63,15 +94,30 @@ public class UserService {
         return userRepository.save(user);
     }
 
+    @Transactional(rollbackFor = IOException.class)
     public User update(long id, UserUpdateVM userUpdate) throws IOException {
         User inDB = userRepository.getById(id);
         inDB.setDisplayName(userUpdate.getDisplayName());
         if (userUpdate.getImage() != null) {
-            String savedImageName = fileService.saveProfileImage(userUpdate.getImage());
-            fileService.deleteProfileImage(inDB.getImage());
-            inDB.setImage(savedImageName);
+            replaceImage(inDB, fileService.saveProfileImage(userUpdate.getImage()));
         }
-        return userRepository.save(inDB);
+        User updated = userRepository.save(inDB);
+        principalChanged(id);
+        return updated;
+    }
+
+    @Transactional(rollbackFor = IOException.class)
+    public User updateImage(long id, MultipartFile image) throws IOException {
+        User inDB = userRepository.getById(id);
+        replaceImage(inDB, fileService.saveProfileImage(image));
+        User updated = userRepository.save(inDB);
+        principalChanged(id);
+        return updated;
+    }
+
+    private void replaceImage(User user, String savedImageName) {
+        fileService.deleteProfileImage(user.getImage());
+        user.setImage(savedImageName);
     }
 
     public Page<User> getUsers(UserPrincipal loggedInUser, Pageable pageable) {
@@ -81,6 +127,46 @@ public class UserService {
         return userRepository.findAllUsers("", pageable);
     }
 
+    public Slice<User> getUsers(UserPrincipal loggedInUser, String afterUsername, int size) {
+        Pageable byUsername = PageRequest.of(0, size, Sort.by("username"));
+        if (loggedInUser != null) {
+            return userRepository.findByUsernameNotAndEmailVerificationStatusIsTrueAndUsernameGreaterThan(
+                    loggedInUser.getUsername(), afterUsername, byUsername);
+        }
+        return userRepository.findByEmailVerificationStatusIsTrueAndUsernameGreaterThan(afterUsername, byUsername);
+    }
+
+    public Page<UserVM> toUserVMs(Page<User> users, Long viewerId) {
+        return new PageImpl<>(toUserVMs(users.getContent(), viewerId), users.getPageable(), users.getTotalElements());
+    }
+
+    // follow counts and the followed flag of the whole page come from one query, whatever the size of the graph
+    public List<UserVM> toUserVMs(List<User> users, Long viewerId) {
+        if (users.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = users.stream().map(User::getId).collect(Collectors.toList());
+        Map<Long, FollowCount> counts = new HashMap<>();
+        for (FollowCount count : userRepository.findFollowCounts(ids, viewerId == null ? ANONYMOUS : viewerId)) {
+            counts.put(count.getUserId(), count);
+        }
+        List<UserVM> userVMs = new ArrayList<>(users.size());
+        for (User user : users) {
+            FollowCount count = counts.get(user.getId());
+            userVMs.add(count == null ? new UserVM(user)
+                    : new UserVM(user, (int) count.getFollows(), (int) count.getFollowedBy(), count.getFollowed() > 0));
+        }
+        return userVMs;
+    }
+
+    public List<Long> getFollowsIds(long id) {
+        return followGraphIndex.getFollowsIds(id);
+    }
+
+    public List<Long> getFollowerIds(long id) {
+        return followGraphIndex.getFollowerIds(id);
+    }
+
     public User getByUsername(String username) {
         User inDB = userRepository.findByUsername(username);
         if (inDB == null)
@@ -98,6 +184,9 @@ public class UserService {
     @Transactional
     public void follow(long id, Long currentUserId) {
         User targetUser = getById(id);
+        if (followGraphIndex.follows(currentUserId, id)) {
+            return;
+        }
         User currentUserInDB = getById(currentUserId);
 
         targetUser.getFollowedBy().add(currentUserInDB);
@@ -105,11 +194,17 @@ public class UserService {
 
         currentUserInDB.getFollows().add(targetUser);
         userRepository.save(currentUserInDB);
+        followGraphIndex.onFollow(currentUserId, id);
+        timelineService.evict(currentUserId);
+        readWatermarkService.evict(currentUserId);
     }
 
     @Transactional
     public void unfollow(long id, Long currentUserId) {
         User targetUser = getById(id);
+        if (!followGraphIndex.follows(currentUserId, id)) {
+            return;
+        }
         User currentUserInDB = getById(currentUserId);
 
         targetUser.getFollowedBy().remove(currentUserInDB);
@@ -117,6 +212,9 @@ public class UserService {
 
         currentUserInDB.getFollows().remove(targetUser);
         userRepository.save(currentUserInDB);
+        followGraphIndex.onUnfollow(currentUserId, id);
+        timelineService.evict(currentUserId);
+        readWatermarkService.evict(currentUserId);
     }
 
     private User getById(long id) {
@@ -192,6 +290,7 @@ public class UserService {
                 verificationTokenService.saveToken(userToken);
             }
             userRepository.save(userDB);
+            principalChanged(userDB.getId());
             return true;
         }
         return false;
@@ -206,6 +305,7 @@ public class UserService {
             userInDB.setEmail(updatedEmail.getNewEmail());
             userInDB.setEmailVerificationStatus(false);
             userRepository.save(userInDB);
+            principalChanged(userInDB.getId());
             emailSender.verifyEmail(userInDB);
             return true;
         } catch (RuntimeException e) {
@@ -239,10 +339,28 @@ public class UserService {
             User inDB = userRepository.findByEmail(email);
             inDB.setPassword(passwordEncoder.encode(updatedPassword.getNewPassword()));
             userRepository.save(inDB);
+            principalChanged(inDB.getId());
             return true;
+        } catch (TooManyRequestsHandler e) {
+            throw e;
         } catch (RuntimeException e) {
             e.printStackTrace();
         }
         return false;
     }
+
+    // a self-contained token holds the profile version it was issued at, after changing their profile the user is
+    // given one with the new version instead of having the one they sent rejected on the next request
+    public String reissueToken(long id) {
+        if (!jwtTokenProvider.isSelfContained()) {
+            return null;
+        }
+        return userRepository.findById(id).map(user -> jwtTokenProvider.generateToken(UserPrincipal.create(user))).orElse(null);
+    }
+
+    // cached principals and issued self-contained tokens hold the old profile values
+    private void principalChanged(long id) {
+        userPrincipalCache.invalidate(id);
+        principalVersions.bump(id);
+    }
 }
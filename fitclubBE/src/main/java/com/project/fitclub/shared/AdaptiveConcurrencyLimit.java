@@ -0,0 +1,95 @@
+package com.project.fitclub.shared;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit of one endpoint class, adapted to the observed latency with a gradient: while recent latency
+ * stays at the long term average the limit grows by about its square root, when requests start queueing and
+ * latency rises above it the limit shrinks in proportion, down to half per sample.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // weight of a sample in the long term latency, about the last 500 requests
+    private static final double LONG_WINDOW = 500;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private volatile double limit;
+
+    private double longRtt;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong admitted = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    public void release(long rttNanos) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        onSample(Math.max(rttNanos, 1), inFlightAtRelease);
+    }
+
+    private synchronized void onSample(long rtt, int inFlightAtRelease) {
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        // after a load spike the average is far above the current latency, let it come down faster
+        if (longRtt > 2 * rtt) {
+            longRtt *= 0.95;
+        }
+        double current = limit;
+        // an idle limit says nothing about the capacity, only grow it while it is in use
+        if (inFlightAtRelease < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, longRtt / rtt));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(next, maxLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAdmittedCount() {
+        return admitted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public double getRejectRate() {
+        long rejectedCount = rejected.get();
+        long total = admitted.get() + rejectedCount;
+        return total == 0 ? 0 : (double) rejectedCount / total;
+    }
+}
@@ -0,0 +1,66 @@
+package com.project.fitclub.shared;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set membership with no false negatives and about 1% false positives for the expected number of strings.
+ * Adding is thread safe; the filter never shrinks, it is rebuilt instead.
+ */
+public class BloomFilter {
+
+    static final int HASH_FUNCTIONS = 7;
+
+    // bits per expected element for a 1% false positive rate with 7 hash functions
+    static final int BITS_PER_ELEMENT = 10;
+
+    private final AtomicLongArray words;
+
+    private final long bits;
+
+    public BloomFilter(int expectedElements) {
+        long size = Math.max(64, (long) Math.max(expectedElements, 1) * BITS_PER_ELEMENT);
+        this.words = new AtomicLongArray((int) ((size + 63) / 64));
+        this.bits = words.length() * 64L;
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 1; i <= HASH_FUNCTIONS; i++) {
+            long bit = Math.floorMod(first + i * second, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 1; i <= HASH_FUNCTIONS; i++) {
+            long bit = Math.floorMod(first + i * second, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64-bit FNV-1a with a final mix, split into the two hashes of double hashing
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
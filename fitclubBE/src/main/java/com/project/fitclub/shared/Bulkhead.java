@@ -0,0 +1,97 @@
+package com.project.fitclub.shared;
+
+import com.project.fitclub.error.ServiceUnavailableHandler;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of its own for one kind of slow, blocking work, so it cannot occupy the Tomcat threads serving everything
+ * else. Controllers return the WebAsyncTask, Spring starts async processing and only then hands it to the pool, so
+ * the request thread is released and the request is not used by two threads at once; once the queue is full new
+ * tasks are rejected with 503. Multipart bodies are resolved lazily, so an upload is read from the client by the
+ * task; a @RequestBody such as the Base64 image of a user update is still read and parsed by Jackson on the request
+ * thread before the task is returned.
+ * newExecutor builds the same kind of pool for background work that needs another overflow policy.
+ */
+public class Bulkhead {
+
+    private final String name;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AsyncTaskExecutor asyncExecutor = new TaskExecutorAdapter(this::execute);
+
+    public Bulkhead(String name, int threads, int queueSize) {
+        this.name = name;
+        this.executor = newExecutor(name + "-bulkhead", threads, queueSize, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // fixed number of daemon threads named threadName-N and a bounded queue, overflow decides what happens when it is full
+    public static ThreadPoolExecutor newExecutor(String threadName, int threads, int queueSize, RejectedExecutionHandler overflow) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, overflow);
+    }
+
+    // a full queue is rejected here on the request thread, before Spring starts async processing
+    public <T> WebAsyncTask<T> task(Callable<T> task) {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw rejected();
+        }
+        return new WebAsyncTask<>(null, asyncExecutor, task);
+    }
+
+    // the queue can still fill up between task and execute, Spring then resolves the rejection like any task error
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            throw rejected();
+        }
+    }
+
+    private ServiceUnavailableHandler rejected() {
+        rejected.incrementAndGet();
+        return new ServiceUnavailableHandler("Server is busy with " + name + " requests, try again later");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,141 @@
+package com.project.fitclub.shared;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Sheds load before it queues up in Tomcat: feed reads, writes, uploads and auth requests each have an
+ * AdaptiveConcurrencyLimit, and a request over the limit of its class is answered 503 right away.
+ * Requests outside the API and the post stream are not limited.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    public static final String FEED = "feed";
+    public static final String WRITES = "writes";
+    public static final String UPLOADS = "uploads";
+    public static final String AUTH = "auth";
+
+    private static final String API = "/api/1.0/";
+
+    private static final Pattern USER_UPDATE = Pattern.compile("/api/1\\.0/users/[0-9]+");
+
+    private static final Pattern USER_IMAGE = Pattern.compile("/api/1\\.0/users/[0-9]+/image");
+
+    private static final Pattern USER_POSTS = Pattern.compile("/api/1\\.0/users/[^/]+/posts(/.*)?");
+
+    private final boolean enabled;
+
+    private final Map<String, AdaptiveConcurrencyLimit> limits;
+
+    public ConcurrencyLimitFilter(AppConfiguration appConfiguration) {
+        this.enabled = appConfiguration.isConcurrencyLimitEnabled();
+        Map<String, AdaptiveConcurrencyLimit> limits = new LinkedHashMap<>();
+        for (String endpointClass : new String[]{FEED, WRITES, UPLOADS, AUTH}) {
+            limits.put(endpointClass, new AdaptiveConcurrencyLimit(appConfiguration.getConcurrencyLimitInitial(),
+                    appConfiguration.getConcurrencyLimitMin(), appConfiguration.getConcurrencyLimitMax()));
+        }
+        this.limits = Collections.unmodifiableMap(limits);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String endpointClass = getEndpointClass(request);
+        if (endpointClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+        if (!limit.tryAcquire()) {
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server is busy, try again later");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener(limit, start));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    String getEndpointClass(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(API)) {
+            return null;
+        }
+        String method = request.getMethod();
+        if (path.startsWith("/api/1.0/auth/")) {
+            return AUTH;
+        }
+        if (path.equals("/api/1.0/posts/upload") || USER_IMAGE.matcher(path).matches()
+                || ("PUT".equals(method) && USER_UPDATE.matcher(path).matches())) {
+            return UPLOADS;
+        }
+        if ("GET".equals(method)) {
+            if (path.equals("/api/1.0/posts/stream")) {
+                return null;
+            }
+            return path.startsWith("/api/1.0/posts") || USER_POSTS.matcher(path).matches() ? FEED : null;
+        }
+        return WRITES;
+    }
+
+    public Map<String, AdaptiveConcurrencyLimit> getLimits() {
+        return limits;
+    }
+
+    // async requests hold their slot until the response is completed on another thread
+    static class ReleaseListener implements AsyncListener {
+
+        final AdaptiveConcurrencyLimit limit;
+
+        final long start;
+
+        ReleaseListener(AdaptiveConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limit.release(System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.project.fitclub.shared;
+
+import com.project.fitclub.error.BadRequestHandler;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Data
+@NoArgsConstructor
+public class CursorSlice<T> {
+
+    private List<T> content;
+
+    private int size;
+
+    private boolean last;
+
+    private String nextCursor;
+
+    public static <T> CursorSlice<T> of(Slice<T> slice, Function<T, Object> cursorKey) {
+        CursorSlice<T> cursorSlice = new CursorSlice<>();
+        cursorSlice.setContent(slice.getContent());
+        cursorSlice.setSize(slice.getSize());
+        cursorSlice.setLast(!slice.hasNext());
+        if (slice.hasNext() && slice.hasContent()) {
+            T lastItem = slice.getContent().get(slice.getNumberOfElements() - 1);
+            cursorSlice.setNextCursor(encode(String.valueOf(cursorKey.apply(lastItem))));
+        }
+        return cursorSlice;
+    }
+
+    public <R> CursorSlice<R> map(Function<T, R> converter) {
+        return mapContent(items -> items.stream().map(converter).collect(Collectors.toList()));
+    }
+
+    // converts the whole content at once, for converters that batch their queries
+    public <R> CursorSlice<R> mapContent(Function<List<T>, List<R>> converter) {
+        CursorSlice<R> mapped = new CursorSlice<>();
+        mapped.setContent(converter.apply(content));
+        mapped.setSize(size);
+        mapped.setLast(last);
+        mapped.setNextCursor(nextCursor);
+        return mapped;
+    }
+
+    // an empty cursor asks for the first slice
+    public static long decodeId(String cursor) {
+        if (cursor.isEmpty()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(decode(cursor));
+        } catch (NumberFormatException e) {
+            throw new BadRequestHandler("Invalid cursor");
+        }
+    }
+
+    public static String decodeKey(String cursor) {
+        if (cursor.isEmpty()) {
+            return "";
+        }
+        return decode(cursor);
+    }
+
+    private static String encode(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestHandler("Invalid cursor");
+        }
+    }
+}
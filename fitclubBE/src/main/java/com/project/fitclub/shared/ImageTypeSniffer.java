@@ -0,0 +1,35 @@
+package com.project.fitclub.shared;
+
+/**
+ * Recognizes PNG, JPEG and GIF by their leading signature bytes, the only types uploads may have, without
+ * going through Tika's full magic database. Returns null for anything else, so callers can fall back to Tika.
+ */
+public final class ImageTypeSniffer {
+
+    public static final String PNG = "image/png";
+
+    public static final String JPEG = "image/jpeg";
+
+    public static final String GIF = "image/gif";
+
+    // the longest signature, PNG's
+    public static final int HEADER_LENGTH = 8;
+
+    private ImageTypeSniffer() {
+    }
+
+    public static String sniff(byte[] header, int length) {
+        if (length >= 8 && (header[0] & 0xff) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G'
+                && header[4] == '\r' && header[5] == '\n' && header[6] == 0x1a && header[7] == '\n') {
+            return PNG;
+        }
+        if (length >= 3 && (header[0] & 0xff) == 0xff && (header[1] & 0xff) == 0xd8 && (header[2] & 0xff) == 0xff) {
+            return JPEG;
+        }
+        if (length >= 6 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8'
+                && (header[4] == '7' || header[4] == '9') && header[5] == 'a') {
+            return GIF;
+        }
+        return null;
+    }
+}
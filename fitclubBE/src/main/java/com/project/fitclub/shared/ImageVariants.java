@@ -0,0 +1,46 @@
+package com.project.fitclub.shared;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resized copies stored next to an uploaded image and named after it with their width: avatar sizes for
+ * profile images, feed sizes for post attachments. They are generated by ImageVariantService after the upload.
+ */
+public enum ImageVariants {
+
+    AVATAR(64, 128),
+    FEED(480, 960);
+
+    private final int[] widths;
+
+    ImageVariants(int... widths) {
+        this.widths = widths;
+    }
+
+    public int getWidth(int index) {
+        return widths[index];
+    }
+
+    public int getCount() {
+        return widths.length;
+    }
+
+    public static String getName(String imageName, int width) {
+        return imageName + "-" + width;
+    }
+
+    // width to file name, served from the same folder as the original
+    public Map<Integer, String> getNames(String imageName) {
+        Map<Integer, String> names = new LinkedHashMap<>();
+        for (int width : widths) {
+            names.put(width, getName(imageName, width));
+        }
+        return names;
+    }
+
+    // still of the first frame at the largest width, for images whose variants cannot replace them
+    public String getPosterName(String imageName) {
+        return getName(imageName, widths[widths.length - 1]);
+    }
+}
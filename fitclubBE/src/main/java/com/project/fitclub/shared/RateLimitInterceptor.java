@@ -0,0 +1,51 @@
+package com.project.fitclub.shared;
+
+import com.project.fitclub.error.TooManyRequestsHandler;
+import com.project.fitclub.security.UserPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles one endpoint group per authenticated user, or per client address for anonymous requests,
+ * answering 429 with Retry-After once the bucket is empty.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final String method;
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(String method, RateLimiter rateLimiter) {
+        this.method = method;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async results are dispatched through the interceptors again, the request was counted already
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !method.equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        long waitNanos = rateLimiter.tryAcquire(getClientKey(request));
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+            response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+            throw new TooManyRequestsHandler("Too many requests, try again in " + retryAfterSeconds + " seconds");
+        }
+        return true;
+    }
+
+    private String getClientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal) {
+            return "user:" + ((UserPrincipal) authentication.getPrincipal()).getId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
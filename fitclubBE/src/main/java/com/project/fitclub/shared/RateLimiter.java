@@ -0,0 +1,88 @@
+package com.project.fitclub.shared;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets of one endpoint group, keyed by user or client address. A bucket is a single atomic long,
+ * the time at which it is full again (the GCRA form of a token bucket), so acquiring is one CAS and no lock.
+ * Full buckets carry no state, they are what gets dropped when the map reaches its bound. While no bucket
+ * can be dropped, new keys share one overflow bucket instead of resetting the limits of the known ones.
+ */
+public class RateLimiter {
+
+    private static final long ORIGIN = System.nanoTime();
+
+    // a full map is scanned at most this often, new keys in between go to the overflow bucket
+    static final long EVICTION_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final long intervalNanos;
+
+    private final long toleranceNanos;
+
+    private final int maxKeys;
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong overflow = new AtomicLong();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private volatile long nextEvictionAt;
+
+    public RateLimiter(int capacity, int refillPerMinute, int maxKeys) {
+        this.intervalNanos = 60_000_000_000L / Math.max(refillPerMinute, 1);
+        this.toleranceNanos = intervalNanos * (Math.max(capacity, 1) - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    // 0 when a token was taken, otherwise the nanoseconds until the next one is available
+    public long tryAcquire(String key) {
+        long now = System.nanoTime() - ORIGIN;
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.size() < maxKeys || evictFull(now) ? buckets.computeIfAbsent(key, k -> new AtomicLong()) : overflow;
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long waitNanos = fullAt - toleranceNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(fullAt, Math.max(fullAt, now) + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    // true when dropping the full buckets made room; no bucket is full again before the earliest fullAt left
+    private boolean evictFull(long now) {
+        if (now < nextEvictionAt || !evictionLock.tryLock()) {
+            return false;
+        }
+        try {
+            long earliest = Long.MAX_VALUE;
+            Iterator<AtomicLong> iterator = buckets.values().iterator();
+            while (iterator.hasNext()) {
+                long fullAt = iterator.next().get();
+                if (fullAt <= now) {
+                    iterator.remove();
+                } else {
+                    earliest = Math.min(earliest, fullAt);
+                }
+            }
+            boolean room = buckets.size() < maxKeys;
+            nextEvictionAt = room ? now + EVICTION_INTERVAL_NANOS : Math.max(earliest, now + EVICTION_INTERVAL_NANOS);
+            return room;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
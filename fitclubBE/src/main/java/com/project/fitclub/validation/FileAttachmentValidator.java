@@ -6,7 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
-import java.util.Base64;
+import java.io.IOException;
 
 public class FileAttachmentValidator implements ConstraintValidator<PostAttachment, String> {
 
@@ -19,8 +19,12 @@ public class FileAttachmentValidator implements ConstraintValidator<PostAttachme
             return true;
         }
 
-        byte[] decodedBytes = Base64.getDecoder().decode(value);
-        String fileType = fileService.detectType(decodedBytes);
+        String fileType;
+        try {
+            fileType = fileService.detectBase64Type(value);
+        } catch (IOException e) {
+            return false;
+        }
         if (fileType.equalsIgnoreCase("image/png") ||
                 fileType.equalsIgnoreCase("image/jpeg") || fileType.equalsIgnoreCase("image/gif")) {
             return true;
@@ -0,0 +1,41 @@
+package com.project.fitclub;
+
+import com.project.fitclub.shared.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+    @Test
+    public void mightContain_whenValueWasAdded_receiveTrue() {
+        BloomFilter bloomFilter = new BloomFilter(1000);
+        String[] values = new String[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = UUID.randomUUID().toString();
+            bloomFilter.add(values[i]);
+        }
+
+        for (String value : values) {
+            assertThat(bloomFilter.mightContain(value)).isTrue();
+        }
+    }
+
+    @Test
+    public void mightContain_whenValuesWereNotAdded_receiveFalseForAlmostAll() {
+        BloomFilter bloomFilter = new BloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            bloomFilter.add(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (bloomFilter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
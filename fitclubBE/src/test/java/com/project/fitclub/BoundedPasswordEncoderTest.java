@@ -0,0 +1,69 @@
+package com.project.fitclub;
+
+import com.project.fitclub.error.TooManyRequestsHandler;
+import com.project.fitclub.security.BoundedPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedPasswordEncoderTest {
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    CountDownLatch started = new CountDownLatch(1);
+
+    BoundedPasswordEncoder boundedPasswordEncoder;
+
+    @Test
+    public void matches_whenPoolIsFree_receiveResultOfDelegate() {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(NoOpPasswordEncoder.getInstance(), 1, 1);
+
+        assertThat(boundedPasswordEncoder.matches("P4ssword", "P4ssword")).isTrue();
+        assertThat(boundedPasswordEncoder.encode("P4ssword")).isEqualTo("P4ssword");
+    }
+
+    @Test
+    public void encode_whenThreadAndQueueAreBusy_throwsTooManyRequests() throws InterruptedException {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(), 1, 1);
+        new Thread(() -> boundedPasswordEncoder.encode("first")).start();
+        started.await(5, TimeUnit.SECONDS);
+        new Thread(() -> boundedPasswordEncoder.encode("queued")).start();
+        while (boundedPasswordEncoder.getQueuedCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> boundedPasswordEncoder.encode("rejected")).isInstanceOf(TooManyRequestsHandler.class);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        release.countDown();
+        boundedPasswordEncoder.shutdown();
+    }
+
+    class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.project.fitclub;
+
+import com.project.fitclub.error.ServiceUnavailableHandler;
+import com.project.fitclub.shared.Bulkhead;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BulkheadTest {
+
+    Bulkhead bulkhead = new Bulkhead("test", 1, 1);
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    public void cleanup() {
+        release.countDown();
+        bulkhead.shutdown();
+    }
+
+    @Test
+    public void task_whenQueueIsFull_receiveServiceUnavailable() {
+        start(bulkhead.task(this::block));
+        start(bulkhead.task(this::block));
+
+        assertThatThrownBy(() -> bulkhead.task(this::block)).isInstanceOf(ServiceUnavailableHandler.class);
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void task_whenStarted_runsOnBulkheadThread() throws Exception {
+        Future<String> future = start(bulkhead.task(() -> Thread.currentThread().getName()));
+
+        assertThat(future.get(5, TimeUnit.SECONDS)).startsWith("test-bulkhead-");
+    }
+
+    @Test
+    public void task_whenTaskFails_completesFutureWithItsException() {
+        Future<Object> future = start(bulkhead.task(() -> {
+            throw new IOException("Only PNG, JPG and GIF files are allowed!");
+        }));
+
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    // what Spring does with the task once async processing has started
+    @SuppressWarnings("unchecked")
+    private <T> Future<T> start(WebAsyncTask<T> task) {
+        return (Future<T>) task.getExecutor().submit(task.getCallable());
+    }
+
+    private Boolean block() throws InterruptedException {
+        return release.await(5, TimeUnit.SECONDS);
+    }
+}
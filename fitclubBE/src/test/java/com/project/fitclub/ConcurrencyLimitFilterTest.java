@@ -0,0 +1,63 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.shared.AdaptiveConcurrencyLimit;
+import com.project.fitclub.shared.ConcurrencyLimitFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimitFilterTest {
+
+    @Test
+    public void doFilter_whenLimitOfEndpointClassIsReached_receiveServiceUnavailable() throws Exception {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setConcurrencyLimitInitial(1);
+        appConfiguration.setConcurrencyLimitMin(1);
+        appConfiguration.setConcurrencyLimitMax(1);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(appConfiguration);
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockHttpServletResponse otherClass = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/1.0/posts"), new MockHttpServletResponse(), (request, response) -> {
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/1.0/users/user1/posts"), rejected, (r, s) -> {
+            });
+            filter.doFilter(new MockHttpServletRequest("POST", "/api/1.0/posts"), otherClass, (r, s) -> {
+            });
+        });
+
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(otherClass.getStatus()).isEqualTo(200);
+        assertThat(filter.getLimits().get(ConcurrencyLimitFilter.FEED).getInFlight()).isZero();
+        assertThat(filter.getLimits().get(ConcurrencyLimitFilter.FEED).getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void release_whenLatencyRisesUnderLoad_shrinksLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100);
+        runAtFullLimit(limit, 200, 1_000_000);
+        int steadyLimit = limit.getLimit();
+        assertThat(steadyLimit).isGreaterThan(20);
+
+        runAtFullLimit(limit, 20, 10_000_000);
+        assertThat(limit.getLimit()).isLessThan(steadyLimit / 2);
+    }
+
+    private void runAtFullLimit(AdaptiveConcurrencyLimit limit, int samples, long rttNanos) {
+        AtomicInteger acquired = new AtomicInteger();
+        for (int i = 0; i < samples; i++) {
+            while (limit.tryAcquire()) {
+                acquired.incrementAndGet();
+            }
+            limit.release(rttNanos);
+            acquired.decrementAndGet();
+        }
+        while (acquired.getAndDecrement() > 0) {
+            limit.release(rttNanos);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.project.fitclub.configuration.AppConfiguration;
 import com.project.fitclub.dao.FileAttachmentRepository;
 import com.project.fitclub.model.FileAttachment;
 import com.project.fitclub.service.FileService;
+import com.project.fitclub.service.ImageVariantService;
+import com.project.fitclub.service.StoredBlobService;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -21,6 +24,7 @@ import java.util.Arrays;
 import java.util.Date;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -37,7 +41,9 @@ public class FileServiceTest {
         appConfiguration = new AppConfiguration();
         appConfiguration.setUploadPath("uploads-test");
 
-        fileService = new FileService(appConfiguration, fileAttachmentRepository);
+        StoredBlobService storedBlobService = Mockito.mock(StoredBlobService.class);
+        Mockito.when(storedBlobService.removeReference(Mockito.anyString())).thenReturn(true);
+        fileService = new FileService(appConfiguration, fileAttachmentRepository, Mockito.mock(ImageVariantService.class), storedBlobService);
 
         new File(appConfiguration.getUploadPath()).mkdir();
         new File(appConfiguration.getFullProfileImagesPath()).mkdir();
@@ -91,6 +97,41 @@ public class FileServiceTest {
         Mockito.verify(fileAttachmentRepository).deleteById(5L);
     }
 
+    @Test
+    public void saveAttachment_whenImageProvided_writesWholeFile() throws IOException {
+        File source = new ClassPathResource("test-jpg.jpg").getFile();
+        byte[] content = FileUtils.readFileToByteArray(source);
+        Mockito.when(fileAttachmentRepository.save(Mockito.any(FileAttachment.class))).then(invocation -> invocation.getArgument(0));
+
+        FileAttachment saved = fileService.saveAttachment(new MockMultipartFile("file", content));
+
+        assertThat(saved.getFileType()).isEqualToIgnoringCase("image/jpeg");
+        File stored = new File(appConfiguration.getFullAttachmentsPath() + "/" + saved.getName());
+        assertThat(FileUtils.readFileToByteArray(stored)).isEqualTo(content);
+    }
+
+    @Test
+    public void saveAttachment_whenSameImageSavedTwice_storesOneFileNamedByItsHash() throws IOException {
+        byte[] content = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+        Mockito.when(fileAttachmentRepository.save(Mockito.any(FileAttachment.class))).then(invocation -> invocation.getArgument(0));
+
+        FileAttachment first = fileService.saveAttachment(new MockMultipartFile("file", content));
+        FileAttachment second = fileService.saveAttachment(new MockMultipartFile("file", content));
+
+        assertThat(second.getName()).isEqualTo(first.getName());
+        assertThat(first.getName()).matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}");
+        assertThat(FileUtils.listFiles(new File(appConfiguration.getFullAttachmentsPath()), null, true)).hasSize(1);
+    }
+
+    @Test
+    public void saveAttachment_whenFileIsNotImage_leavesNoFileInStorage() throws IOException {
+        byte[] content = FileUtils.readFileToByteArray(new ClassPathResource("test-txt.txt").getFile());
+
+        assertThatThrownBy(() -> fileService.saveAttachment(new MockMultipartFile("file", content)))
+                .isInstanceOf(IOException.class);
+        assertThat(new File(appConfiguration.getFullAttachmentsPath()).list()).isEmpty();
+    }
+
     @AfterEach
     public void cleanup() throws IOException {
         FileUtils.cleanDirectory(new File(appConfiguration.getFullProfileImagesPath()));
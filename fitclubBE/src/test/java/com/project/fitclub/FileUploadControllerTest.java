@@ -2,6 +2,7 @@ package com.project.fitclub;
 
 import com.project.fitclub.configuration.AppConfiguration;
 import com.project.fitclub.dao.FileAttachmentRepository;
+import com.project.fitclub.dao.StoredBlobRepository;
 import com.project.fitclub.dao.UserRepository;
 import com.project.fitclub.model.FileAttachment;
 import com.project.fitclub.service.UserService;
@@ -44,10 +45,14 @@ public class FileUploadControllerTest {
     @Autowired
     FileAttachmentRepository fileAttachmentRepository;
 
+    @Autowired
+    StoredBlobRepository storedBlobRepository;
+
     @BeforeEach
     public void init() throws IOException {
         userRepository.deleteAll();
         fileAttachmentRepository.deleteAll();
+        storedBlobRepository.deleteAll();
         testRestTemplate.getRestTemplate().getInterceptors().clear();
         FileUtils.cleanDirectory(new File(appConfiguration.getFullAttachmentsPath()));
     }
@@ -0,0 +1,71 @@
+package com.project.fitclub;
+
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.model.projection.FollowEdge;
+import com.project.fitclub.service.FollowGraphIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FollowGraphIndexTest {
+
+    FollowGraphIndex followGraphIndex;
+
+    @BeforeEach
+    public void init() {
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findAllFollowEdges())
+                .thenReturn(Arrays.asList(edge(1, 3), edge(1, 2), edge(2, 3), edge(4, 1)));
+        followGraphIndex = new FollowGraphIndex(userRepository);
+        followGraphIndex.load();
+    }
+
+    @Test
+    public void load_whenThereAreFollowRelations_indexesBothDirections() {
+        assertThat(followGraphIndex.getFollowsIds(1)).containsExactly(2L, 3L);
+        assertThat(followGraphIndex.getFollowerIds(3)).containsExactly(1L, 2L);
+        assertThat(followGraphIndex.countFollowers(1)).isEqualTo(1);
+        assertThat(followGraphIndex.countFollows(5)).isEqualTo(0);
+    }
+
+    @Test
+    public void onFollow_whenUserFollowsAnotherUser_updatesContainsAndCounts() {
+        followGraphIndex.onFollow(5, 1);
+
+        assertThat(followGraphIndex.follows(5, 1)).isTrue();
+        assertThat(followGraphIndex.countFollowers(1)).isEqualTo(2);
+        assertThat(followGraphIndex.getFollowerIds(1)).containsExactly(4L, 5L);
+    }
+
+    @Test
+    public void onUnfollow_whenUserUnfollowsAnotherUser_removesRelation() {
+        followGraphIndex.onUnfollow(1, 3);
+
+        assertThat(followGraphIndex.follows(1, 3)).isFalse();
+        assertThat(followGraphIndex.getFollowerIds(3)).containsExactly(2L);
+    }
+
+    @Test
+    public void intersectFollows_whenUsersFollowTheSameUser_returnsCommonIds() {
+        assertThat(followGraphIndex.intersectFollows(1, 2)).containsExactly(3L);
+        assertThat(followGraphIndex.intersectFollows(1, 4)).isEmpty();
+    }
+
+    private FollowEdge edge(long followerId, long followeeId) {
+        return new FollowEdge() {
+            @Override
+            public long getFollowerId() {
+                return followerId;
+            }
+
+            @Override
+            public long getFolloweeId() {
+                return followeeId;
+            }
+        };
+    }
+}
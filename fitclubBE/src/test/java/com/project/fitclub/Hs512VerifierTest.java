@@ -0,0 +1,61 @@
+package com.project.fitclub;
+
+import com.project.fitclub.security.Hs512Verifier;
+import com.project.fitclub.security.VerifiedToken;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.impl.TextCodec;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Hs512VerifierTest {
+
+    static final String SECRET = "testSecretKey";
+
+    Hs512Verifier hs512Verifier = new Hs512Verifier(
+            new SecretKeySpec(TextCodec.BASE64.decode(SECRET), SignatureAlgorithm.HS512.getJcaName()));
+
+    long now = System.currentTimeMillis();
+
+    @Test
+    public void verify_whenTokenWasSignedByJjwtWithSecret_receiveSubjectAndExpiration() {
+        Date expiryDate = new Date(now + 60000);
+        String token = Jwts.builder().setSubject("42").setIssuedAt(new Date()).setExpiration(expiryDate)
+                .signWith(SignatureAlgorithm.HS512, SECRET).compact();
+
+        VerifiedToken verified = hs512Verifier.verify(token, now);
+        assertThat(verified.getUserId()).isEqualTo(42);
+        assertThat(verified.getExpiresAt()).isEqualTo(expiryDate.getTime() / 1000 * 1000);
+    }
+
+    @Test
+    public void verify_whenTokenWasSignedWithAnotherSecret_throwsSignatureException() {
+        String token = Jwts.builder().setSubject("42").setExpiration(new Date(now + 60000))
+                .signWith(SignatureAlgorithm.HS512, "otherSecretKey").compact();
+
+        assertThatThrownBy(() -> hs512Verifier.verify(token, now)).isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    public void verify_whenTokenIsExpired_throwsExpiredJwtException() {
+        String token = Jwts.builder().setSubject("42").setExpiration(new Date(now - 60000))
+                .signWith(SignatureAlgorithm.HS512, SECRET).compact();
+
+        assertThatThrownBy(() -> hs512Verifier.verify(token, now)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    public void verify_whenTokenHasOtherClaims_receiveNullForJjwtFallback() {
+        String token = Jwts.builder().setSubject("42").claim("username", "user1").setExpiration(new Date(now + 60000))
+                .signWith(SignatureAlgorithm.HS512, SECRET).compact();
+
+        assertThat(hs512Verifier.verify(token, now)).isNull();
+    }
+}
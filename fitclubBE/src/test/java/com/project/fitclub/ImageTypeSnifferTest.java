@@ -0,0 +1,33 @@
+package com.project.fitclub;
+
+import com.project.fitclub.shared.ImageTypeSniffer;
+import org.apache.commons.io.FileUtils;
+import org.apache.tika.Tika;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageTypeSnifferTest {
+
+    @Test
+    public void sniff_whenImageProvided_returnsSameTypeAsTika() throws IOException {
+        Tika tika = new Tika();
+        for (String fileName : new String[]{"test-png.png", "profile.png", "test-jpg.jpg", "test-gif.gif"}) {
+            byte[] content = FileUtils.readFileToByteArray(new ClassPathResource(fileName).getFile());
+
+            assertThat(ImageTypeSniffer.sniff(content, content.length)).isEqualTo(tika.detect(content));
+        }
+    }
+
+    @Test
+    public void sniff_whenNotImageOrTooShort_returnsNull() throws IOException {
+        byte[] text = FileUtils.readFileToByteArray(new ClassPathResource("test-txt.txt").getFile());
+        byte[] png = FileUtils.readFileToByteArray(new ClassPathResource("test-png.png").getFile());
+
+        assertThat(ImageTypeSniffer.sniff(text, text.length)).isNull();
+        assertThat(ImageTypeSniffer.sniff(png, 7)).isNull();
+    }
+}
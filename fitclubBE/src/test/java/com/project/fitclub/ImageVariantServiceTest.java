@@ -0,0 +1,68 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.FileAttachmentRepository;
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.service.ImageVariantService;
+import com.project.fitclub.shared.ImageVariants;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageVariantServiceTest {
+
+    ImageVariantService imageVariantService;
+
+    File folder = new File("uploads-test/variants");
+
+    @BeforeEach
+    public void init() {
+        folder.mkdirs();
+        imageVariantService = new ImageVariantService(new AppConfiguration(), Mockito.mock(FileAttachmentRepository.class),
+                Mockito.mock(UserRepository.class));
+    }
+
+    @Test
+    public void generate_whenImageIsWiderThanVariants_writesVariantsOfEachWidth() throws IOException {
+        Path original = copy("test-jpg.jpg");
+        BufferedImage source = ImageIO.read(original.toFile());
+
+        assertThat(imageVariantService.generate(original, ImageVariants.AVATAR)).isTrue();
+
+        for (int width : new int[]{64, 128}) {
+            BufferedImage variant = ImageIO.read(original.resolveSibling("image-" + width).toFile());
+            assertThat(variant.getWidth()).isEqualTo(Math.min(width, source.getWidth()));
+        }
+    }
+
+    @Test
+    public void generate_whenFileIsNotImage_receiveFalse() throws IOException {
+        Path original = copy("test-txt.txt");
+
+        assertThat(imageVariantService.generate(original, ImageVariants.FEED)).isFalse();
+        assertThat(folder.list()).containsExactly("image");
+    }
+
+    private Path copy(String fileName) throws IOException {
+        File target = new File(folder, "image");
+        FileUtils.copyFile(new ClassPathResource(fileName).getFile(), target);
+        return target.toPath();
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        imageVariantService.shutdown();
+        FileUtils.deleteDirectory(folder);
+    }
+}
@@ -0,0 +1,151 @@
+package com.project.fitclub;
+
+import com.project.fitclub.model.User;
+import com.project.fitclub.security.JwtTokenProvider;
+import com.project.fitclub.security.PrincipalVersions;
+import com.project.fitclub.security.UserPrincipal;
+import com.project.fitclub.security.VerifiedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JwtTokenProviderTest {
+
+    JwtTokenProvider jwtTokenProvider;
+
+    PrincipalVersions principalVersions;
+
+    @BeforeEach
+    public void init() {
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", "testSecretKey");
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationInMs", 60000);
+        ReflectionTestUtils.setField(jwtTokenProvider, "verifiedTokenCacheSize", 10);
+        ReflectionTestUtils.setField(jwtTokenProvider, "streamTokenExpirationInMs", 60000);
+        principalVersions = new PrincipalVersions();
+        ReflectionTestUtils.setField(jwtTokenProvider, "principalVersions", principalVersions);
+        jwtTokenProvider.init();
+    }
+
+    @Test
+    public void resolveStreamToken_whenStreamIsOpenedWithTokenParameter_receiveToken() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/1.0/posts/stream");
+        request.setParameter("access_token", "token");
+
+        assertThat(jwtTokenProvider.resolveStreamToken(request)).isEqualTo("token");
+        assertThat(jwtTokenProvider.resolveToken(request)).isNull();
+    }
+
+    @Test
+    public void resolveStreamToken_whenProfileStreamIsOpenedWithTokenParameter_receiveToken() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/1.0/users/user1/posts/stream");
+        request.setParameter("access_token", "token");
+
+        assertThat(jwtTokenProvider.resolveStreamToken(request)).isEqualTo("token");
+    }
+
+    @Test
+    public void resolveStreamToken_whenOtherPathHasTokenParameter_receiveNull() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/1.0/posts");
+        request.setParameter("access_token", "token");
+
+        assertThat(jwtTokenProvider.resolveStreamToken(request)).isNull();
+    }
+
+    @Test
+    public void verify_whenTokenIsStreamToken_receiveStreamOnlyToken() {
+        VerifiedToken verified = jwtTokenProvider.verify(jwtTokenProvider.createStreamToken(5)).get();
+
+        assertThat(verified.isStreamOnly()).isTrue();
+        assertThat(verified.getUserId()).isEqualTo(5);
+        assertThat(verified.getExpiresAt()).isLessThanOrEqualTo(System.currentTimeMillis() + 60000);
+    }
+
+    @Test
+    public void verify_whenTokenIsLoginToken_receiveTokenNotStreamOnly() {
+        String token = jwtTokenProvider.createToken("5", new Date(System.currentTimeMillis() + 60000));
+
+        assertThat(jwtTokenProvider.verify(token).get().isStreamOnly()).isFalse();
+    }
+
+    @Test
+    public void verify_whenTokenIsValid_receiveUserIdAndExpiration() {
+        Date expiryDate = new Date(System.currentTimeMillis() + 60000);
+        String token = jwtTokenProvider.createToken("5", expiryDate);
+
+        VerifiedToken verified = jwtTokenProvider.verify(token).get();
+        assertThat(verified.getUserId()).isEqualTo(5);
+        assertThat(verified.getTokenId()).isNotNull();
+        assertThat(verified.getExpiresAt()).isEqualTo(expiryDate.getTime() / 1000 * 1000);
+    }
+
+    @Test
+    public void verify_whenSameTokenIsVerifiedAgain_receiveCachedResult() {
+        String token = jwtTokenProvider.createToken("5", new Date(System.currentTimeMillis() + 60000));
+
+        Optional<VerifiedToken> first = jwtTokenProvider.verify(token);
+        Optional<VerifiedToken> second = jwtTokenProvider.verify(token);
+        assertThat(second.get()).isSameAs(first.get());
+    }
+
+    @Test
+    public void verify_whenSignatureIsTampered_receiveEmpty() {
+        String token = jwtTokenProvider.createToken("5", new Date(System.currentTimeMillis() + 60000));
+        String tampered = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+
+        assertThat(jwtTokenProvider.verify(tampered)).isEmpty();
+    }
+
+    @Test
+    public void verify_whenTokenIsExpired_receiveEmpty() {
+        String token = jwtTokenProvider.createToken("5", new Date(System.currentTimeMillis() - 1000));
+
+        assertThat(jwtTokenProvider.verify(token)).isEmpty();
+    }
+
+    @Test
+    public void verify_whenTokenIsSelfContained_receivePrincipalFromClaims() {
+        User user = TestUtil.createValidUser("user1");
+        user.setId(5L);
+        user.setEmailVerificationStatus(true);
+        String token = jwtTokenProvider.createSelfContainedToken(UserPrincipal.create(user), new Date(System.currentTimeMillis() + 60000));
+
+        VerifiedToken verified = jwtTokenProvider.verify(token).get();
+        assertThat(verified.getPrincipal().getUsername()).isEqualTo("user1");
+        assertThat(verified.getPrincipal().getDisplayName()).isEqualTo(user.getDisplayName());
+        assertThat(verified.getPrincipal().getEmailVerificationStatus()).isTrue();
+        assertThat(principalVersions.isKnownEpoch(verified.getPrincipalEpoch())).isTrue();
+        assertThat(principalVersions.isCurrent(5L, verified.getPrincipalVersion())).isTrue();
+    }
+
+    @Test
+    public void generateToken_whenSelfContainedAfterVersionBump_receiveCurrentToken() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "selfContained", true);
+        User user = TestUtil.createValidUser("user1");
+        user.setId(5L);
+        principalVersions.bump(5L);
+
+        VerifiedToken verified = jwtTokenProvider.verify(jwtTokenProvider.generateToken(UserPrincipal.create(user))).get();
+
+        assertThat(principalVersions.isCurrent(5L, verified.getPrincipalVersion())).isTrue();
+    }
+
+    @Test
+    public void verify_whenPrincipalVersionWasBumpedAfterIssue_tokenIsNotCurrent() {
+        User user = TestUtil.createValidUser("user1");
+        user.setId(5L);
+        user.setEmailVerificationStatus(true);
+        String token = jwtTokenProvider.createSelfContainedToken(UserPrincipal.create(user), new Date(System.currentTimeMillis() + 60000));
+
+        principalVersions.bump(5L);
+
+        VerifiedToken verified = jwtTokenProvider.verify(token).get();
+        assertThat(principalVersions.isCurrent(5L, verified.getPrincipalVersion())).isFalse();
+    }
+}
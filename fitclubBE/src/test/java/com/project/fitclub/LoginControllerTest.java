@@ -3,6 +3,7 @@ package com.project.fitclub;
 import com.project.fitclub.dao.UserRepository;
 import com.project.fitclub.error.ApiError;
 import com.project.fitclub.model.User;
+import com.project.fitclub.security.BCryptCostCalibrator;
 import com.project.fitclub.security.UserPrincipal;
 import com.project.fitclub.security.payload.LoginRequest;
 import com.project.fitclub.service.UserService;
@@ -12,10 +13,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.support.BasicAuthenticationInterceptor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 
@@ -39,6 +43,9 @@ public class LoginControllerTest {
     @Autowired
     UserService userService;
 
+    @Autowired
+    BCryptCostCalibrator bCryptCostCalibrator;
+
     @BeforeEach
     public void cleanup() {
         userRepository.deleteAll();
@@ -66,6 +73,39 @@ public class LoginControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    public void postLogin_whenStoredHashHasLowerCost_rehashesPasswordWithCalibratedCost() throws InterruptedException {
+        User user = TestUtil.createValidUser("test-user");
+        user.setPassword(new BCryptPasswordEncoder(bCryptCostCalibrator.getCost() - 1).encode(user.getPassword()));
+        user.setEmailVerificationStatus(true);
+        User inDB = userRepository.save(user);
+
+        authenticateUser(TestUtil.createLoginUser());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        String storedHash = userRepository.findById(inDB.getId()).get().getPassword();
+        while (BCryptCostCalibrator.costOf(storedHash) != bCryptCostCalibrator.getCost() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            storedHash = userRepository.findById(inDB.getId()).get().getPassword();
+        }
+        assertThat(BCryptCostCalibrator.costOf(storedHash)).isEqualTo(bCryptCostCalibrator.getCost());
+        assertThat(authenticateUser(TestUtil.createLoginUser()).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void postLogin_whenStoredHashHasHigherCost_keepsStoredHash() throws InterruptedException {
+        User user = TestUtil.createValidUser("test-user");
+        String higherCostHash = new BCryptPasswordEncoder(bCryptCostCalibrator.getCost() + 1).encode(user.getPassword());
+        user.setPassword(higherCostHash);
+        user.setEmailVerificationStatus(true);
+        User inDB = userRepository.save(user);
+
+        authenticateUser(TestUtil.createLoginUser());
+        Thread.sleep(200);
+
+        assertThat(userRepository.findById(inDB.getId()).get().getPassword()).isEqualTo(higherCostHash);
+    }
+
     @Test
     public void postLogin_withValidCredentials_receiveLoggedInUserId() {
         User inDB = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
@@ -124,6 +164,27 @@ public class LoginControllerTest {
         assertThat(body).hasFieldOrProperty("password");
     }
 
+    @Test
+    public void postLogout_withValidToken_tokenIsRejectedAfterwards() {
+        userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(authenticateUser(TestUtil.createLoginUser()).getBody().getJwt());
+
+        ResponseEntity<Object> logout = testRestTemplate.exchange("/api/1.0/auth/logout", HttpMethod.POST,
+                new HttpEntity<>(headers), Object.class);
+        ResponseEntity<Object> afterLogout = testRestTemplate.exchange("/api/1.0/posts/1?direction=after", HttpMethod.GET,
+                new HttpEntity<>(headers), Object.class);
+
+        assertThat(logout.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(afterLogout.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void postLogout_withoutToken_receiveBadRequest() {
+        ResponseEntity<Object> logout = testRestTemplate.postForEntity("/api/1.0/auth/logout", null, Object.class);
+        assertThat(logout.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     private ResponseEntity<UserPrincipal> authenticateUser(LoginRequest loggingUser) {
         ResponseEntity<UserPrincipal> userPrincipalResponseEntity = testRestTemplate.postForEntity("/api/1.0/auth/login", loggingUser, UserPrincipal.class);
         return userPrincipalResponseEntity;
@@ -4,6 +4,7 @@ import com.project.fitclub.configuration.AppConfiguration;
 import com.project.fitclub.dao.FileAttachmentRepository;
 import com.project.fitclub.dao.PostReactionRepository;
 import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.dao.StoredBlobRepository;
 import com.project.fitclub.dao.UserRepository;
 import com.project.fitclub.error.ApiError;
 import com.project.fitclub.model.FileAttachment;
@@ -18,6 +19,7 @@ import com.project.fitclub.service.FileService;
 import com.project.fitclub.service.PostReactionService;
 import com.project.fitclub.service.PostService;
 import com.project.fitclub.service.UserService;
+import com.project.fitclub.shared.CursorSlice;
 import com.project.fitclub.shared.GenericResponse;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -75,6 +77,9 @@ public class PostControllerTest {
     @Autowired
     FileAttachmentRepository fileAttachmentRepository;
 
+    @Autowired
+    StoredBlobRepository storedBlobRepository;
+
     @Autowired
     FileService fileService;
 
@@ -96,6 +101,7 @@ public class PostControllerTest {
         postReactionRepository.deleteAll();
         postRepository.deleteAll();
         userRepository.deleteAll();
+        storedBlobRepository.deleteAll();
         testRestTemplate.getRestTemplate().getInterceptors().clear();
         FileUtils.cleanDirectory(new File(appConfiguration.getFullAttachmentsPath()));
     }
@@ -445,6 +451,29 @@ public class PostControllerTest {
         assertThat(storedPost.getUser().getUsername()).isEqualTo("test-user");
     }
 
+    @Test
+    public void getPosts_whenPostHasFileAttachment_receivePostVMWithAttachmentAndAuthor() throws IOException, URISyntaxException {
+        userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        LoginRequest loggingUser = TestUtil.createLoginUser();
+        ResponseEntity<UserPrincipal> response = authenticateUser(loggingUser);
+
+        String token = response.getBody().getJwt();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        FileAttachment savedFile = fileService.saveAttachment(createFile());
+        PostRequest post = TestUtil.createPostRequest();
+        post.setAttachment(savedFile);
+        postUserPost(post, headers, Object.class);
+
+        ResponseEntity<TestPage<PostVM>> result = getPosts(headers, new ParameterizedTypeReference<>() {
+        });
+        PostVM postVM = result.getBody().getContent().get(0);
+        assertThat(postVM.getAttachment().getName()).isEqualTo(savedFile.getName());
+        assertThat(postVM.getUser().getUsername()).isEqualTo("test-user");
+        assertThat(postVM.getReactions().getLikeCount()).isEqualTo(0);
+    }
+
     @Test
     public void getPostsOfUser_whenUserExists_receiveOk() throws URISyntaxException {
         userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
@@ -565,6 +594,102 @@ public class PostControllerTest {
         assertThat(result.getBody().getTotalElements()).isEqualTo(2);
     }
 
+    @Test
+    public void getPosts_whenFollowedUserPostsAfterFeedWasLoaded_receivePageWithNewPost() throws URISyntaxException {
+        userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        LoginRequest loggingUser = TestUtil.createLoginUser();
+        ResponseEntity<UserPrincipal> response = authenticateUser(loggingUser);
+
+        String token = response.getBody().getJwt();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        User user2 = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user2"));
+        postService.save(user2, TestUtil.createValidPost());
+        follow(user2.getId(), headers, Object.class);
+        getPosts(headers, new ParameterizedTypeReference<TestPage<PostVM>>() {
+        });
+
+        Post newPost = postService.save(user2, TestUtil.createValidPost());
+
+        ResponseEntity<TestPage<PostVM>> result = getPosts(headers, new ParameterizedTypeReference<>() {
+        });
+        assertThat(result.getBody().getTotalElements()).isEqualTo(2);
+        assertThat(result.getBody().getContent().get(0).getId()).isEqualTo(newPost.getId());
+    }
+
+    @Test
+    public void getPosts_whenFollowedUserDeletesPostAfterFeedWasLoaded_receivePageWithoutDeletedPost() throws URISyntaxException {
+        userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        LoginRequest loggingUser = TestUtil.createLoginUser();
+        ResponseEntity<UserPrincipal> response = authenticateUser(loggingUser);
+
+        String token = response.getBody().getJwt();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        User user2 = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user2"));
+        postService.save(user2, TestUtil.createValidPost());
+        Post postToDelete = postService.save(user2, TestUtil.createValidPost());
+        follow(user2.getId(), headers, Object.class);
+        getPosts(headers, new ParameterizedTypeReference<TestPage<PostVM>>() {
+        });
+
+        postService.deletePost(postToDelete.getId());
+
+        ResponseEntity<TestPage<PostVM>> result = getPosts(headers, new ParameterizedTypeReference<>() {
+        });
+        assertThat(result.getBody().getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    public void getPosts_whenCursorIsProvided_receiveNextSliceWithoutOverlap() throws URISyntaxException {
+        User myUser = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        LoginRequest loggingUser = TestUtil.createLoginUser();
+        ResponseEntity<UserPrincipal> response = authenticateUser(loggingUser);
+
+        String token = response.getBody().getJwt();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        IntStream.rangeClosed(1, 5).forEach(i -> postService.save(myUser, TestUtil.createValidPost()));
+
+        ResponseEntity<CursorSlice<PostVM>> firstSlice = getPostsWithCursor("", headers, new ParameterizedTypeReference<>() {
+        });
+        ResponseEntity<CursorSlice<PostVM>> secondSlice = getPostsWithCursor(firstSlice.getBody().getNextCursor(), headers, new ParameterizedTypeReference<>() {
+        });
+
+        assertThat(firstSlice.getBody().getContent().size()).isEqualTo(3);
+        assertThat(firstSlice.getBody().isLast()).isFalse();
+        assertThat(secondSlice.getBody().getContent().size()).isEqualTo(2);
+        assertThat(secondSlice.getBody().isLast()).isTrue();
+        assertThat(secondSlice.getBody().getContent().get(0).getId())
+                .isLessThan(firstSlice.getBody().getContent().get(2).getId());
+    }
+
+    @Test
+    public void getOldPostsOfUser_whenCursorIsProvided_receiveSliceBeforeProvidedId() throws URISyntaxException {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        LoginRequest loggingUser = TestUtil.createLoginUser();
+        ResponseEntity<UserPrincipal> response = authenticateUser(loggingUser);
+
+        String token = response.getBody().getJwt();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+
+        postService.save(user, TestUtil.createValidPost());
+        postService.save(user, TestUtil.createValidPost());
+        Post thirdPost = postService.save(user, TestUtil.createValidPost());
+        postService.save(user, TestUtil.createValidPost());
+
+        String path = "/api/1.0/users/test-user/posts/" + thirdPost.getId() + "?direction=before&size=5&cursor=";
+        ResponseEntity<CursorSlice<PostVM>> result = testRestTemplate.exchange(RequestEntity.get(new URI(path)).headers(headers).build(),
+                new ParameterizedTypeReference<CursorSlice<PostVM>>() {
+                });
+        assertThat(result.getBody().getContent().size()).isEqualTo(2);
+        assertThat(result.getBody().isLast()).isTrue();
+    }
+
     @Test
     public void getOldPosts_whenThereAreNoPostsButUserNotLoggedIn_receiveUnauthorized() throws URISyntaxException {
         ResponseEntity<Object> response = getOldPosts(5, null, new ParameterizedTypeReference<Object>() {
@@ -841,6 +966,43 @@ public class PostControllerTest {
         assertThat(result.getBody().get("count")).isEqualTo(1);
     }
 
+    @Test
+    public void getNewPostsCount_whenFollowedUserPostsAfterCountWasRead_receiveIncrementedCount() throws URISyntaxException {
+        User myUser = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(authenticateUser(TestUtil.createLoginUser()).getBody().getJwt());
+        User user2 = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user2"));
+        follow(user2.getId(), headers, Object.class);
+        Post firstPost = postService.save(myUser, TestUtil.createValidPost());
+        postService.save(user2, TestUtil.createValidPost());
+        getNewPostsCount(firstPost.getId(), headers, new ParameterizedTypeReference<Map<String, Object>>() {
+        });
+
+        postService.save(user2, TestUtil.createValidPost());
+
+        ResponseEntity<Map<String, Object>> result = getNewPostsCount(firstPost.getId(), headers, new ParameterizedTypeReference<Map<String, Object>>() {
+        });
+        assertThat(result.getBody().get("count")).isEqualTo(2);
+    }
+
+    @Test
+    public void getNewPosts_whenMorePostsThanCatchUpLimitWereMissed_receiveNewestPostsAndGapHeader() throws URISyntaxException {
+        User myUser = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(authenticateUser(TestUtil.createLoginUser()).getBody().getJwt());
+        Post firstPost = postService.save(myUser, TestUtil.createValidPost());
+        Post lastPost = null;
+        for (int i = 0; i <= appConfiguration.getCatchUpLimit(); i++) {
+            lastPost = postService.save(myUser, TestUtil.createValidPost());
+        }
+
+        ResponseEntity<List<PostVM>> result = getNewPosts(firstPost.getId(), headers, new ParameterizedTypeReference<List<PostVM>>() {
+        });
+        assertThat(result.getBody().size()).isEqualTo(appConfiguration.getCatchUpLimit());
+        assertThat(result.getBody().get(0).getId()).isEqualTo(lastPost.getId());
+        assertThat(result.getHeaders().getFirst("X-Posts-Gap")).isEqualTo("true");
+    }
+
     @Test
     public void getNewPostsCountOfUser_whenThereArePosts_receiveCountAfterProvidedId() throws URISyntaxException {
         User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
@@ -862,6 +1024,53 @@ public class PostControllerTest {
         assertThat(result.getBody().get("count")).isEqualTo(1);
     }
 
+    @Test
+    public void streamNewPosts_whenUserIsUnauthorized_receiveUnauthorized() throws URISyntaxException {
+        ResponseEntity<Object> response = testRestTemplate.exchange(RequestEntity.get(new URI(API_1_0_POSTS + "/stream")).build(), Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void streamNewPosts_whenLoginTokenIsSentAsParameter_receiveUnauthorized() throws URISyntaxException {
+        userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        String token = authenticateUser(TestUtil.createLoginUser()).getBody().getJwt();
+
+        ResponseEntity<Object> response = testRestTemplate.exchange(
+                RequestEntity.get(new URI(API_1_0_POSTS + "/stream?access_token=" + token)).build(), Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void createStreamToken_whenUserIsAuthorized_receiveTokenRejectedOutsideStreams() throws URISyntaxException {
+        userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(authenticateUser(TestUtil.createLoginUser()).getBody().getJwt());
+
+        ResponseEntity<Map<String, String>> response = testRestTemplate.exchange(
+                RequestEntity.post(new URI(API_1_0_POSTS + "/stream/token")).headers(headers).build(),
+                new ParameterizedTypeReference<Map<String, String>>() {
+                });
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        HttpHeaders streamTokenHeaders = new HttpHeaders();
+        streamTokenHeaders.setBearerAuth(response.getBody().get("token"));
+        ResponseEntity<Object> result = postUserPost(TestUtil.createPostRequest(), streamTokenHeaders, Object.class);
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void createStreamToken_whenUserIsUnauthorized_receiveUnauthorized() throws URISyntaxException {
+        ResponseEntity<Object> response = testRestTemplate.exchange(
+                RequestEntity.post(new URI(API_1_0_POSTS + "/stream/token")).build(), Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    public void streamNewPostsOfUser_whenUserIsUnauthorized_receiveUnauthorized() throws URISyntaxException {
+        ResponseEntity<Object> response = testRestTemplate.exchange(RequestEntity.get(new URI("/api/1.0/users/test-user/posts/stream")).build(), Object.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
     @Test
     public void getReactions_whenAnonymouslyGetAllWhenThereIsPostWithReaction_returnsReactionLikeCount() throws URISyntaxException {
         User myUser = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
@@ -1144,6 +1353,11 @@ public class PostControllerTest {
 
     }
 
+    public <T> ResponseEntity<T> getPostsWithCursor(String cursor, HttpHeaders headers, ParameterizedTypeReference<T> responseType) throws URISyntaxException {
+        String path = API_1_0_POSTS + "?size=3&cursor=" + cursor;
+        return testRestTemplate.exchange(RequestEntity.get(new URI(path)).headers(headers).build(), responseType);
+    }
+
     public <T> ResponseEntity<T> getPosts(HttpHeaders headers, ParameterizedTypeReference<T> responseType) throws URISyntaxException {
         return testRestTemplate.exchange(RequestEntity.get(new URI(API_1_0_POSTS)).headers(headers).build(), responseType);
     }
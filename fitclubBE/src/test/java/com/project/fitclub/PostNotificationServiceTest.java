@@ -0,0 +1,134 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.error.ServiceUnavailableHandler;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.User;
+import com.project.fitclub.service.PostNotificationService;
+import com.project.fitclub.service.ReadWatermarkService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PostNotificationServiceTest {
+
+    PostNotificationService postNotificationService;
+
+    ReadWatermarkService readWatermarkService;
+
+    @BeforeEach
+    public void init() {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setMaxPostStreams(2);
+        readWatermarkService = Mockito.mock(ReadWatermarkService.class);
+        postNotificationService = new PostNotificationService(appConfiguration, readWatermarkService);
+    }
+
+    @Test
+    public void onPostSaved_whenFollowerHasOpenStream_marksFollowerPendingOnce() {
+        postNotificationService.subscribe(1);
+
+        postNotificationService.onPostSaved(createPost(3), Arrays.asList(1L, 2L));
+        postNotificationService.onPostSaved(createPost(3), Arrays.asList(1L));
+
+        assertThat(postNotificationService.getPendingUserCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onPostSaved_whenFollowerHasNoOpenStream_keepsNothingPending() {
+        postNotificationService.onPostSaved(createPost(3), Arrays.asList(2L));
+
+        assertThat(postNotificationService.getPendingUserCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void subscribe_whenStreamLimitIsReached_throwsServiceUnavailable() {
+        postNotificationService.subscribe(1);
+        postNotificationService.subscribe(2);
+
+        assertThatThrownBy(() -> postNotificationService.subscribe(3)).isInstanceOf(ServiceUnavailableHandler.class);
+        assertThat(postNotificationService.getOpenStreams()).isEqualTo(2);
+    }
+
+    @Test
+    public void flushPendingCounts_whenFollowerHasPendingPosts_sendsEventWithoutError() {
+        postNotificationService.subscribe(1);
+        postNotificationService.onPostSaved(createPost(3), Arrays.asList(1L));
+
+        postNotificationService.flushPendingCounts();
+        postNotificationService.sendHeartbeats();
+
+        Mockito.verify(readWatermarkService, Mockito.timeout(1000)).getUnreadCount(1);
+        assertThat(postNotificationService.getPendingUserCount()).isEqualTo(0);
+        assertThat(postNotificationService.getOpenStreams()).isEqualTo(1);
+    }
+
+    @Test
+    public void onPostSaved_whenAuthorHasOpenFeedStream_marksAuthorPending() {
+        postNotificationService.subscribe(3);
+
+        postNotificationService.onPostSaved(createPost(3), Collections.emptyList());
+
+        assertThat(postNotificationService.getPendingUserCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void onPostSaved_whenProfileOfAuthorHasOpenStream_marksAuthorPendingForProfileStreams() {
+        postNotificationService.subscribeToAuthor(3);
+
+        postNotificationService.onPostSaved(createPost(3), Collections.emptyList());
+        postNotificationService.flushPendingCounts();
+
+        assertThat(postNotificationService.getPendingAuthorCount()).isEqualTo(0);
+        assertThat(postNotificationService.getOpenStreams()).isEqualTo(1);
+    }
+
+    @Test
+    public void dropBlockedStreams_whenSendIsBlocked_dropsStreamWithoutWaitingForSend() throws Exception {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setPostStreamSendTimeoutMs(0);
+        PostNotificationService service = new PostNotificationService(appConfiguration, readWatermarkService);
+        SseEmitter emitter = service.subscribe(1);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        // holding the emitter blocks a send to it like a client that stopped reading
+        Thread client = new Thread(() -> {
+            synchronized (emitter) {
+                locked.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        client.start();
+        locked.await();
+
+        service.sendHeartbeats();
+        Thread.sleep(100);
+        service.dropBlockedStreams();
+
+        assertThat(service.getOpenStreams()).isEqualTo(0);
+        assertThat(service.getDroppedStreamCount()).isEqualTo(1);
+        released.countDown();
+        client.join();
+        service.shutdown();
+    }
+
+    private Post createPost(long authorId) {
+        User author = TestUtil.createValidUser("user" + authorId);
+        author.setId(authorId);
+        Post post = TestUtil.createValidPost();
+        post.setUser(author);
+        return post;
+    }
+}
@@ -7,6 +7,7 @@ import com.project.fitclub.model.*;
 import com.project.fitclub.security.JwtTokenProvider;
 import com.project.fitclub.security.UserPrincipal;
 import com.project.fitclub.security.payload.LoginRequest;
+import com.project.fitclub.service.PostReactionService;
 import com.project.fitclub.service.PostService;
 import com.project.fitclub.service.UserService;
 import com.project.fitclub.shared.GenericResponse;
@@ -56,6 +57,9 @@ public class PostReactionControllerTest {
     @Autowired
     PostReactionRepository postReactionRepository;
 
+    @Autowired
+    PostReactionService postReactionService;
+
     @Test
     public void putLike_whenUnauthorizedUser_returns401() {
         String path = String.format(API_1_0_POSTS_LIKE, 5);
@@ -233,6 +237,51 @@ public class PostReactionControllerTest {
         assertThat(reaction.getReaction()).isEqualTo(Reaction.LIKE);
     }
 
+    @Test
+    public void putLike_whenAuthorizedUserLikesThePost_incrementsLikeCountOfPost() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        authenticateUser("user1");
+
+        Post post = postService.save(user, TestUtil.createValidPost());
+
+        String path = String.format(API_1_0_POSTS_LIKE, post.getId());
+        testRestTemplate.exchange(path, HttpMethod.PUT, null, Object.class);
+
+        Post inDB = postRepository.findById(post.getId()).get();
+        assertThat(inDB.getLikeCount()).isEqualTo(1);
+        assertThat(inDB.getDislikeCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void putDislike_whenAuthorizedUserAlreadyLikesThePost_movesCountFromLikesToDislikes() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        authenticateUser("user1");
+
+        Post post = postService.save(user, TestUtil.createValidPost());
+
+        testRestTemplate.exchange(String.format(API_1_0_POSTS_LIKE, post.getId()), HttpMethod.PUT, null, Object.class);
+        testRestTemplate.exchange(String.format(API_1_0_POSTS_DISLIKE, post.getId()), HttpMethod.PUT, null, Object.class);
+
+        Post inDB = postRepository.findById(post.getId()).get();
+        assertThat(inDB.getLikeCount()).isEqualTo(0);
+        assertThat(inDB.getDislikeCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void reconcileReactionCounts_whenCountersDrifted_recountsReactionsOfPost() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        Post post = postService.save(user, TestUtil.createValidPost());
+
+        PostReaction reaction = new PostReaction();
+        reaction.setReaction(Reaction.DISLIKE);
+        reaction.setPost(post);
+        reaction.setUser(user);
+        postReactionRepository.save(reaction);
+
+        assertThat(postReactionService.reconcileReactionCounts()).isEqualTo(1);
+        assertThat(postRepository.findById(post.getId()).get().getDislikeCount()).isEqualTo(1);
+    }
+
     private void authenticateUser(String username) {
         testRestTemplate.getRestTemplate().getInterceptors().add(new BasicAuthenticationInterceptor(username, "P4ssword12@"));
     }
@@ -0,0 +1,62 @@
+package com.project.fitclub;
+
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.User;
+import com.project.fitclub.model.projection.AuthorPost;
+import com.project.fitclub.model.projection.AuthorPostCount;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest
+@ActiveProfiles("test")
+public class PostRepositoryTest {
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Test
+    public void findAuthorPostsByUserIdIn_whenAuthorsHavePosts_returnsNewestFirstWithTheirAuthor() {
+        User user1 = testEntityManager.persist(TestUtil.createValidUser("user1"));
+        User user2 = testEntityManager.persist(TestUtil.createValidUser("user2"));
+        persistPost(user1);
+        Post second = persistPost(user2);
+        Post third = persistPost(user1);
+
+        List<AuthorPost> posts = postRepository.findAuthorPostsByUserIdIn(Arrays.asList(user1.getId(), user2.getId()), PageRequest.of(0, 2));
+        assertThat(posts).extracting(AuthorPost::getUserId, AuthorPost::getPostId)
+                .containsExactly(tuple(user1.getId(), third.getId()), tuple(user2.getId(), second.getId()));
+    }
+
+    @Test
+    public void findPostCountsByUserIdIn_whenAuthorsHavePosts_returnsCountPerAuthor() {
+        User user1 = testEntityManager.persist(TestUtil.createValidUser("user1"));
+        User user2 = testEntityManager.persist(TestUtil.createValidUser("user2"));
+        persistPost(user1);
+        persistPost(user2);
+        persistPost(user1);
+
+        List<AuthorPostCount> postCounts = postRepository.findPostCountsByUserIdIn(Arrays.asList(user1.getId(), user2.getId()));
+        assertThat(postCounts).extracting(AuthorPostCount::getUserId, AuthorPostCount::getPostCount)
+                .containsExactlyInAnyOrder(tuple(user1.getId(), 2L), tuple(user2.getId(), 1L));
+    }
+
+    private Post persistPost(User user) {
+        Post post = TestUtil.createValidPost();
+        post.setUser(user);
+        return testEntityManager.persist(post);
+    }
+}
@@ -0,0 +1,162 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.User;
+import com.project.fitclub.model.projection.AuthorPost;
+import com.project.fitclub.model.projection.AuthorPostCount;
+import com.project.fitclub.service.FollowGraphIndex;
+import com.project.fitclub.service.PullFeedService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PullFeedServiceTest {
+
+    PullFeedService pullFeedService;
+
+    PostRepository postRepository;
+
+    @BeforeEach
+    public void init() {
+        postRepository = Mockito.mock(PostRepository.class);
+        FollowGraphIndex followGraphIndex = Mockito.mock(FollowGraphIndex.class);
+        Mockito.when(followGraphIndex.getFollowsIds(1)).thenReturn(Arrays.asList(2L, 3L));
+
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setFeedMode("pull");
+        appConfiguration.setAuthorRecentPosts(3);
+        pullFeedService = new PullFeedService(postRepository, followGraphIndex, appConfiguration);
+    }
+
+    @Test
+    public void getPage_whenFollowedAuthorsPosted_mergesTheirPostsNewestFirst() {
+        pullFeedService.getPage(1, PageRequest.of(0, 10));
+        save(2, 10);
+        save(3, 11);
+        save(1, 12);
+        save(2, 13);
+
+        Page<Long> page = pullFeedService.getPage(1, PageRequest.of(0, 10)).get();
+        assertThat(page.getContent()).containsExactly(13L, 12L, 11L, 10L);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    public void getSliceBefore_whenPostsAreBuffered_returnsOlderPostsOnly() {
+        pullFeedService.getPage(1, PageRequest.of(0, 10));
+        save(2, 10);
+        save(3, 11);
+        save(2, 13);
+
+        Slice<Long> slice = pullFeedService.getSliceBefore(1, 13, 1).get();
+        assertThat(slice.getContent()).containsExactly(11L);
+        assertThat(slice.hasNext()).isTrue();
+    }
+
+    @Test
+    public void getPage_whenPageGoesPastBufferedHorizon_returnsEmptyForDatabaseFallback() {
+        pullFeedService.getPage(1, PageRequest.of(0, 10));
+        for (long id = 1; id <= 5; id++) {
+            save(2, id);
+        }
+        save(3, 20);
+
+        assertThat(pullFeedService.getPage(1, PageRequest.of(0, 3)).get().getContent()).containsExactly(20L, 5L, 4L);
+        assertThat(pullFeedService.getPage(1, PageRequest.of(1, 3))).isEmpty();
+    }
+
+    @Test
+    public void getPage_whenPostDeleted_removesPostFromFeed() {
+        pullFeedService.getPage(1, PageRequest.of(0, 10));
+        save(2, 10);
+        Post post = save(3, 11);
+        pullFeedService.onPostDeleted(post);
+
+        assertThat(pullFeedService.getPage(1, PageRequest.of(0, 10)).get().getContent()).containsExactly(10L);
+    }
+
+    @Test
+    public void getPage_whenBufferIsLoadedBeforePostSavedRuns_keepsPostOnce() {
+        Mockito.when(postRepository.findAuthorPostsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(authorPost(2, 10), authorPost(2, 9)));
+        pullFeedService.getPage(1, PageRequest.of(0, 10));
+        save(2, 10);
+
+        assertThat(pullFeedService.getPage(1, PageRequest.of(0, 10)).get().getContent()).containsExactly(10L, 9L);
+    }
+
+    @Test
+    public void getPage_whenFollowedAuthorsAreCold_loadsThemWithOneQuery() {
+        Mockito.when(postRepository.findAuthorPostsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(authorPost(3, 12), authorPost(2, 10), authorPost(3, 8)));
+        Mockito.when(postRepository.findPostCountsByUserIdIn(Mockito.anyCollection()))
+                .thenReturn(Arrays.asList(postCount(2, 1), postCount(3, 2)));
+
+        Page<Long> page = pullFeedService.getPage(1, PageRequest.of(0, 10)).get();
+        assertThat(page.getContent()).containsExactly(12L, 10L, 8L);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        Mockito.verify(postRepository).findAuthorPostsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    public void getPage_whenBufferHoldsNewestPostsOnly_receiveTotalOfAllPosts() {
+        Mockito.when(postRepository.findAuthorPostsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(authorPost(2, 10), authorPost(2, 9), authorPost(2, 8), authorPost(2, 7)));
+        Mockito.when(postRepository.findPostCountsByUserIdIn(Mockito.anyCollection()))
+                .thenReturn(Collections.singletonList(postCount(2, 20)));
+
+        Page<Long> page = pullFeedService.getPage(1, PageRequest.of(0, 2)).get();
+        assertThat(page.getContent()).containsExactly(10L, 9L);
+        assertThat(page.getTotalElements()).isEqualTo(20);
+        assertThat(pullFeedService.getPage(1, PageRequest.of(1, 2))).isEmpty();
+    }
+
+    private AuthorPost authorPost(long userId, long postId) {
+        return new AuthorPost() {
+            @Override
+            public long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public long getPostId() {
+                return postId;
+            }
+        };
+    }
+
+    private AuthorPostCount postCount(long userId, long postCount) {
+        return new AuthorPostCount() {
+            @Override
+            public long getUserId() {
+                return userId;
+            }
+
+            @Override
+            public long getPostCount() {
+                return postCount;
+            }
+        };
+    }
+
+    private Post save(long authorId, long postId) {
+        User author = TestUtil.createValidUser("user" + authorId);
+        author.setId(authorId);
+        Post post = TestUtil.createValidPost();
+        post.setId(postId);
+        post.setUser(author);
+        pullFeedService.onPostSaved(post);
+        return post;
+    }
+}
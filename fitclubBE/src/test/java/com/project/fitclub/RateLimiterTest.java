@@ -0,0 +1,69 @@
+package com.project.fitclub;
+
+import com.project.fitclub.error.TooManyRequestsHandler;
+import com.project.fitclub.shared.RateLimitInterceptor;
+import com.project.fitclub.shared.RateLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RateLimiterTest {
+
+    @Test
+    public void tryAcquire_whenBurstIsUsedUp_receiveWaitUntilNextToken() {
+        RateLimiter rateLimiter = new RateLimiter(3, 60, 100);
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire("user:1")).isZero();
+        }
+
+        long waitNanos = rateLimiter.tryAcquire("user:1");
+        assertThat(waitNanos).isPositive().isLessThanOrEqualTo(1_000_000_000L);
+        assertThat(rateLimiter.tryAcquire("user:2")).isZero();
+    }
+
+    @Test
+    public void tryAcquire_whenMaxKeysReached_dropsFullBuckets() {
+        RateLimiter rateLimiter = new RateLimiter(1, 60_000, 2);
+        rateLimiter.tryAcquire("user:1");
+        rateLimiter.tryAcquire("user:2");
+        sleep(5);
+        rateLimiter.tryAcquire("user:3");
+
+        assertThat(rateLimiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void tryAcquire_whenMaxKeysReachedAndNoBucketIsFull_newKeysShareOverflowBucket() {
+        RateLimiter rateLimiter = new RateLimiter(1, 1, 2);
+        rateLimiter.tryAcquire("user:1");
+        rateLimiter.tryAcquire("user:2");
+
+        assertThat(rateLimiter.tryAcquire("user:3")).isZero();
+        assertThat(rateLimiter.tryAcquire("user:4")).isPositive();
+        assertThat(rateLimiter.tryAcquire("user:1")).isPositive();
+        assertThat(rateLimiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void preHandle_whenLimitIsReached_receiveTooManyRequestsWithRetryAfter() {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor("POST", new RateLimiter(1, 1, 100));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/1.0/auth/login");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request, response, null)).isTrue();
+
+        assertThatThrownBy(() -> interceptor.preHandle(request, response, null))
+                .isInstanceOf(TooManyRequestsHandler.class);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("60");
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
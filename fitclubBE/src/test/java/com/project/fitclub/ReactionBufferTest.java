@@ -0,0 +1,132 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostReactionRepository;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.Reaction;
+import com.project.fitclub.model.User;
+import com.project.fitclub.model.vm.PostVM;
+import com.project.fitclub.service.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"fitclub.reaction-write-behind=true", "fitclub.reaction-flush-interval=3600000"})
+@ActiveProfiles("test")
+public class ReactionBufferTest {
+
+    @Autowired
+    ReactionBuffer reactionBuffer;
+
+    @Autowired
+    PostReactionService postReactionService;
+
+    @Autowired
+    PostViewService postViewService;
+
+    @Autowired
+    PostService postService;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    AppConfiguration appConfiguration;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    PostReactionRepository postReactionRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    User user;
+
+    Post post;
+
+    @BeforeEach
+    public void init() {
+        user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        post = postService.save(user, TestUtil.createValidPost());
+    }
+
+    @Test
+    public void like_whenWriteBehindIsEnabled_readsSeePendingReactionBeforeFlush() {
+        postReactionService.like(post.getId(), user);
+
+        List<PostVM> posts = postViewService.getPostVMs(Collections.singletonList(post.getId()), user.getId());
+        assertThat(postReactionRepository.count()).isEqualTo(0);
+        assertThat(posts.get(0).getReactions().getLikeCount()).isEqualTo(1);
+        assertThat(posts.get(0).getReactions().getLoggedUserReaction()).isEqualTo(Reaction.LIKE);
+    }
+
+    @Test
+    public void flush_whenTogglesArePending_writesNetStateAndCounters() {
+        User user2 = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user2"));
+        User user3 = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user3"));
+        postReactionService.like(post.getId(), user);
+        postReactionService.dislike(post.getId(), user);
+        postReactionService.like(post.getId(), user2);
+        postReactionService.like(post.getId(), user3);
+        postReactionService.like(post.getId(), user3);
+
+        reactionBuffer.flush();
+
+        Post inDB = postRepository.findById(post.getId()).get();
+        assertThat(postReactionRepository.count()).isEqualTo(2);
+        assertThat(inDB.getLikeCount()).isEqualTo(1);
+        assertThat(inDB.getDislikeCount()).isEqualTo(1);
+        assertThat(reactionBuffer.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void flush_whenTogglesAreWrittenOrCancelOut_keepsNoCounterDeltas() {
+        Post post2 = postService.save(user, TestUtil.createValidPost());
+        postReactionService.like(post.getId(), user);
+        postReactionService.like(post2.getId(), user);
+        postReactionService.like(post2.getId(), user);
+        assertThat(reactionBuffer.getPendingPostCount()).isEqualTo(1);
+
+        reactionBuffer.flush();
+
+        assertThat(reactionBuffer.getPendingPostCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void recover_whenJournalHasToggles_writesThemToDatabase() throws IOException {
+        postReactionService.like(post.getId(), user);
+
+        ReactionBuffer restarted = new ReactionBuffer(appConfiguration, postService, postRepository,
+                postReactionRepository, userRepository, transactionManager);
+        restarted.recover();
+        restarted.shutdown();
+
+        assertThat(postReactionRepository.count()).isEqualTo(1);
+        assertThat(postRepository.findById(post.getId()).get().getLikeCount()).isEqualTo(1);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        reactionBuffer.flush();
+        postReactionRepository.deleteAll();
+        postRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
@@ -0,0 +1,78 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.dao.UserRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.User;
+import com.project.fitclub.service.FollowGraphIndex;
+import com.project.fitclub.service.ReadWatermarkService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadWatermarkServiceTest {
+
+    ReadWatermarkService readWatermarkService;
+
+    PostRepository postRepository;
+
+    UserRepository userRepository;
+
+    @BeforeEach
+    public void init() {
+        postRepository = Mockito.mock(PostRepository.class);
+        userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(userRepository.findLastSeenPostId(1)).thenReturn(20L);
+        Mockito.when(postRepository.countByUserIdInAfter(Mockito.anyCollection(), Mockito.eq(20L))).thenReturn(0L);
+        Mockito.when(postRepository.countByUserIdInAfter(Mockito.anyCollection(), Mockito.eq(10L))).thenReturn(3L);
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setWatermarkCacheSize(2);
+        readWatermarkService = new ReadWatermarkService(postRepository, userRepository, Mockito.mock(FollowGraphIndex.class), appConfiguration);
+    }
+
+    @Test
+    public void getUnreadCount_whenClientIsBehindWatermark_countsOlderPostsOnce() {
+        assertThat(readWatermarkService.getUnreadCount(1, 10)).isEqualTo(3);
+        readWatermarkService.onPostSaved(createPost(2, 21), Collections.singletonList(1L));
+
+        assertThat(readWatermarkService.getUnreadCount(1, 10)).isEqualTo(4);
+        assertThat(readWatermarkService.getUnreadCount(1)).isEqualTo(1);
+        Mockito.verify(postRepository).countByUserIdInAfter(Mockito.anyCollection(), Mockito.eq(10L));
+    }
+
+    @Test
+    public void getUnreadCount_whenSeenIdIsPastNewestPost_movesWatermarkToNewestPostOnly() {
+        Mockito.when(postRepository.findIdsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(25L));
+
+        assertThat(readWatermarkService.getUnreadCount(1, 1000)).isEqualTo(0);
+        readWatermarkService.onPostSaved(createPost(2, 26), Collections.singletonList(1L));
+
+        assertThat(readWatermarkService.getUnreadCount(1)).isEqualTo(1);
+        Mockito.verify(userRepository).advanceLastSeenPostId(1, 25);
+    }
+
+    @Test
+    public void getUnreadCount_whenMoreUsersThanCacheSize_keepsMostRecentlyUsedWatermarks() {
+        readWatermarkService.getUnreadCount(1);
+        readWatermarkService.getUnreadCount(2);
+        readWatermarkService.getUnreadCount(3);
+
+        assertThat(readWatermarkService.getCachedWatermarkCount()).isEqualTo(2);
+    }
+
+    private Post createPost(long authorId, long postId) {
+        User author = TestUtil.createValidUser("user" + authorId);
+        author.setId(authorId);
+        Post post = TestUtil.createValidPost();
+        post.setId(postId);
+        post.setUser(author);
+        return post;
+    }
+}
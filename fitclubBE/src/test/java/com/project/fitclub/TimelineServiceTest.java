@@ -0,0 +1,137 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.PostRepository;
+import com.project.fitclub.model.Post;
+import com.project.fitclub.model.User;
+import com.project.fitclub.service.FollowGraphIndex;
+import com.project.fitclub.service.TimelineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class TimelineServiceTest {
+
+    TimelineService timelineService;
+
+    @MockBean
+    PostRepository postRepository;
+
+    @MockBean
+    FollowGraphIndex followGraphIndex;
+
+    User author;
+
+    @BeforeEach
+    public void init() {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setTimelineCapacity(3);
+        appConfiguration.setTimelineCacheSize(2);
+        timelineService = new TimelineService(postRepository, followGraphIndex, appConfiguration);
+
+        author = TestUtil.createValidUser("author");
+        author.setId(1);
+        Mockito.when(followGraphIndex.getFollowsIds(Mockito.anyLong())).thenReturn(Collections.emptyList());
+        Mockito.when(postRepository.findIdsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void getPage_whenPostsSavedAfterTimelineIsWarm_returnsNewestFirst() {
+        timelineService.getPage(1, PageRequest.of(0, 10));
+        timelineService.onPostSaved(createPost(10), Collections.emptyList());
+        timelineService.onPostSaved(createPost(12), Collections.emptyList());
+        timelineService.onPostSaved(createPost(11), Collections.emptyList());
+
+        Page<Long> page = timelineService.getPage(1, PageRequest.of(0, 10)).get();
+        assertThat(page.getContent()).containsExactly(12L, 11L, 10L);
+    }
+
+    @Test
+    public void getPage_whenTimelineExceedsCapacity_keepsOnlyNewestPosts() {
+        timelineService.getPage(1, PageRequest.of(0, 10));
+        for (long id = 1; id <= 5; id++) {
+            timelineService.onPostSaved(createPost(id), Collections.emptyList());
+        }
+
+        Page<Long> page = timelineService.getPage(1, PageRequest.of(0, 3)).get();
+        assertThat(page.getContent()).containsExactly(5L, 4L, 3L);
+        assertThat(page.isLast()).isFalse();
+    }
+
+    @Test
+    public void getPage_whenPageIsPastTruncatedTimeline_returnsEmptyForDatabaseFallback() {
+        timelineService.getPage(1, PageRequest.of(0, 10));
+        for (long id = 1; id <= 5; id++) {
+            timelineService.onPostSaved(createPost(id), Collections.emptyList());
+        }
+
+        assertThat(timelineService.getPage(1, PageRequest.of(1, 3))).isEmpty();
+    }
+
+    @Test
+    public void getPage_whenPostDeleted_removesPostFromTimeline() {
+        timelineService.getPage(1, PageRequest.of(0, 10));
+        timelineService.onPostSaved(createPost(10), Collections.emptyList());
+        timelineService.onPostSaved(createPost(11), Collections.emptyList());
+        timelineService.onPostDeleted(createPost(10), Collections.emptyList());
+
+        Page<Long> page = timelineService.getPage(1, PageRequest.of(0, 10)).get();
+        assertThat(page.getContent()).containsExactly(11L);
+    }
+
+    @Test
+    public void getPage_whenTimelineIsCold_rebuildsFromDatabase() {
+        Mockito.when(postRepository.findIdsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(9L, 7L));
+
+        Page<Long> page = timelineService.getPage(1, PageRequest.of(0, 10)).get();
+        assertThat(page.getContent()).containsExactly(9L, 7L);
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    public void getPage_whenTimelineIsTruncated_receiveTotalFromDatabase() {
+        Mockito.when(postRepository.findIdsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(9L, 7L, 5L, 3L));
+        Mockito.when(postRepository.countByUserIdInAfter(Mockito.anyCollection(), Mockito.eq(0L))).thenReturn(10L);
+        timelineService.getPage(1, PageRequest.of(0, 3));
+        timelineService.onPostSaved(createPost(11), Collections.emptyList());
+        timelineService.onPostDeleted(createPost(1), Collections.emptyList());
+
+        Page<Long> page = timelineService.getPage(1, PageRequest.of(0, 3)).get();
+        assertThat(page.getContent()).containsExactly(11L, 9L, 7L);
+        assertThat(page.getTotalElements()).isEqualTo(10);
+    }
+
+    @Test
+    public void getPage_whenMoreTimelinesThanCacheSize_rebuildsLeastRecentlyUsed() {
+        timelineService.getPage(1, PageRequest.of(0, 10));
+        timelineService.getPage(2, PageRequest.of(0, 10));
+        timelineService.getPage(3, PageRequest.of(0, 10));
+        timelineService.getPage(1, PageRequest.of(0, 10));
+
+        assertThat(timelineService.getCachedTimelineCount()).isEqualTo(2);
+        Mockito.verify(postRepository, Mockito.times(4)).findIdsByUserIdIn(Mockito.anyCollection(), Mockito.any(Pageable.class));
+    }
+
+    private Post createPost(long id) {
+        Post post = TestUtil.createValidPost();
+        post.setId(id);
+        post.setUser(author);
+        return post;
+    }
+}
@@ -1,14 +1,17 @@
 package com.project.fitclub;
 
 import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.dao.StoredBlobRepository;
 import com.project.fitclub.dao.UserRepository;
 import com.project.fitclub.error.ApiError;
 import com.project.fitclub.model.User;
 import com.project.fitclub.model.vm.UserUpdateVM;
 import com.project.fitclub.model.vm.UserVM;
+import com.project.fitclub.security.JwtTokenProvider;
 import com.project.fitclub.security.UserPrincipal;
 import com.project.fitclub.security.payload.LoginRequest;
 import com.project.fitclub.service.UserService;
+import com.project.fitclub.shared.CursorSlice;
 import com.project.fitclub.shared.GenericResponse;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
@@ -20,11 +23,16 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.support.BasicAuthenticationInterceptor;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 
 import java.io.File;
 import java.io.IOException;
@@ -50,15 +58,22 @@ public class UserControllerTest {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    StoredBlobRepository storedBlobRepository;
+
     @Autowired
     UserService userService;
 
     @Autowired
     AppConfiguration appConfiguration;
 
+    @Autowired
+    JwtTokenProvider jwtTokenProvider;
+
     @BeforeEach
     public void cleanup() {
         userRepository.deleteAll();
+        storedBlobRepository.deleteAll();
         testRestTemplate.getRestTemplate().getInterceptors().clear();
     }
 
@@ -304,6 +319,36 @@ public class UserControllerTest {
         assertThat(response.getBody().getContent().size()).isEqualTo(3);
     }
 
+    @Test
+    public void getUsers_whenCursorIsProvided_receiveSlicesUntilAllUsersAreListed() {
+        IntStream.rangeClosed(1, 7).mapToObj(i -> "test-user-" + i)
+                .map(TestUtil::createValidUser)
+                .forEach(userService::saveWithoutSendingEmail);
+        String path = API_1_0_USERS + "?size=3&cursor=";
+        ResponseEntity<CursorSlice<UserVM>> response = getUsers(path, new ParameterizedTypeReference<CursorSlice<UserVM>>() {
+        });
+        assertThat(response.getBody().getContent().get(0).getUsername()).isEqualTo("test-user-1");
+        assertThat(response.getBody().isLast()).isFalse();
+
+        path = API_1_0_USERS + "?size=3&cursor=" + response.getBody().getNextCursor();
+        response = getUsers(path, new ParameterizedTypeReference<CursorSlice<UserVM>>() {
+        });
+        path = API_1_0_USERS + "?size=3&cursor=" + response.getBody().getNextCursor();
+        response = getUsers(path, new ParameterizedTypeReference<CursorSlice<UserVM>>() {
+        });
+        assertThat(response.getBody().getContent().size()).isEqualTo(1);
+        assertThat(response.getBody().isLast()).isTrue();
+        assertThat(response.getBody().getNextCursor()).isNull();
+    }
+
+    @Test
+    public void getUsers_whenCursorIsMalformed_receiveBadRequest() {
+        String path = API_1_0_USERS + "?cursor=%%%";
+        ResponseEntity<Object> response = getUsers(path, new ParameterizedTypeReference<Object>() {
+        });
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     public void getUsers_whenPageSizeNotProvided_receivePageSizeAs10() {
         ResponseEntity<TestPage<Object>> response = getUsers(new ParameterizedTypeReference<TestPage<Object>>() {
@@ -419,6 +464,35 @@ public class UserControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    public void putUser_whenTokensAreNotSelfContained_receiveUserVMWithoutToken() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        authenticate(user.getUsername());
+
+        ResponseEntity<UserVM> response = putUser(user.getId(), new HttpEntity<>(createValidUserUpdateVM()), UserVM.class);
+
+        assertThat(response.getBody().getJwt()).isNull();
+    }
+
+    @Test
+    public void putUser_whenTokensAreSelfContained_receiveTokenAcceptedAfterUpdate() {
+        ReflectionTestUtils.setField(jwtTokenProvider, "selfContained", true);
+        try {
+            User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("test-user"));
+            String jwt = authenticateUser(TestUtil.createLoginUser()).getBody().getJwt();
+
+            ResponseEntity<UserVM> response = putUser(user.getId(), withBearer(createValidUserUpdateVM(), jwt), UserVM.class);
+            String reissued = response.getBody().getJwt();
+
+            assertThat(putUser(user.getId(), withBearer(createValidUserUpdateVM(), jwt), Object.class).getStatusCode())
+                    .isEqualTo(HttpStatus.UNAUTHORIZED);
+            assertThat(putUser(user.getId(), withBearer(createValidUserUpdateVM(), reissued), Object.class).getStatusCode())
+                    .isEqualTo(HttpStatus.OK);
+        } finally {
+            ReflectionTestUtils.setField(jwtTokenProvider, "selfContained", false);
+        }
+    }
+
     @Test
     public void putUser_whenValidRequestBodyFromAuthorizedUser_displayNameUpdated() {
         User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
@@ -519,6 +593,70 @@ public class UserControllerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
+    @Test
+    public void putUser_withImageStillUsedByOtherUser_keepsImageInStorage() throws IOException {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        User otherUser = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user2"));
+        UserUpdateVM updatedUser = createValidUserUpdateVM();
+        updatedUser.setImage(readFileToBase64("profile.png"));
+        userService.update(otherUser.getId(), updatedUser);
+        authenticate(user.getUsername());
+
+        HttpEntity<UserUpdateVM> requestEntity = new HttpEntity<>(updatedUser);
+        ResponseEntity<UserVM> response = putUser(user.getId(), requestEntity, UserVM.class);
+        updatedUser.setImage(readFileToBase64("test-jpg.jpg"));
+        putUser(user.getId(), requestEntity, UserVM.class);
+
+        File sharedImage = new File(appConfiguration.getFullProfileImagesPath() + "/" + response.getBody().getImage());
+        assertThat(sharedImage.exists()).isTrue();
+    }
+
+    @Test
+    public void postUserImage_withPngFileFromAuthorizedUser_imageIsStoredUnderProfileFolder() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        authenticate(user.getUsername());
+
+        ResponseEntity<UserVM> response = postUserImage(user.getId(), "profile.png", UserVM.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        File storedImage = new File(appConfiguration.getFullProfileImagesPath() + "/" + response.getBody().getImage());
+        assertThat(storedImage.exists()).isTrue();
+    }
+
+    @Test
+    public void postUserImage_withGifFileFromAuthorizedUser_receiveBadRequest() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        authenticate(user.getUsername());
+
+        ResponseEntity<Object> response = postUserImage(user.getId(), "test-gif.gif", Object.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(new File(appConfiguration.getFullProfileImagesPath()).list()).isEmpty();
+    }
+
+    @Test
+    public void postUserImage_withoutImagePart_receiveBadRequest() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        authenticate(user.getUsername());
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("other", new ClassPathResource("profile.png"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        ResponseEntity<Object> response = testRestTemplate.exchange(API_1_0_USERS + "/" + user.getId() + "/image",
+                HttpMethod.POST, new HttpEntity<>(body, headers), Object.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private <T> ResponseEntity<T> postUserImage(long id, String fileName, Class<T> responseType) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("image", new ClassPathResource(fileName));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return testRestTemplate.exchange(API_1_0_USERS + "/" + id + "/image", HttpMethod.POST, new HttpEntity<>(body, headers), responseType);
+    }
+
     private String readFileToBase64(String fileName) throws IOException {
         ClassPathResource imageResource = new ClassPathResource(fileName);
         byte[] imageArr = FileUtils.readFileToByteArray(imageResource.getFile());
@@ -584,6 +722,7 @@ public class UserControllerTest {
         HttpEntity<UserUpdateVM> requestEntity = new HttpEntity<>(updatedUser);
         ResponseEntity<UserVM> response = putUser(user.getId(), requestEntity, UserVM.class);
 
+        updatedUser.setImage(readFileToBase64("profile.png"));
         putUser(user.getId(), requestEntity, UserVM.class);
 
         String storedImageName = response.getBody().getImage();
@@ -636,12 +775,39 @@ public class UserControllerTest {
         assertThat(result.getBody().isFollowed()).isFalse();
     }
 
+    @Test
+    public void getUsers_whenLoggedInUserFollowsListedUser_receiveFollowCountsAndFollowedFlag() {
+        User user = userService.saveWithoutSendingEmail(TestUtil.createValidUser("user1"));
+        User targetUser = userService.saveWithoutSendingEmail(TestUtil.createValidUser("target-user"));
+        User otherUser = userService.saveWithoutSendingEmail(TestUtil.createValidUser("other-user"));
+
+        userService.follow(targetUser.getId(), user.getId());
+        userService.follow(targetUser.getId(), otherUser.getId());
+        userService.follow(otherUser.getId(), targetUser.getId());
+
+        authenticate("user1");
+
+        ResponseEntity<TestPage<UserVM>> response = getUsers(new ParameterizedTypeReference<TestPage<UserVM>>() {
+        });
+        UserVM listedTarget = response.getBody().getContent().stream()
+                .filter(vm -> vm.getUsername().equals("target-user")).findFirst().get();
+        assertThat(listedTarget.getFollowedBy()).isEqualTo(2);
+        assertThat(listedTarget.getFollows()).isEqualTo(1);
+        assertThat(listedTarget.isFollowed()).isTrue();
+    }
+
     private UserUpdateVM createValidUserUpdateVM() {
         UserUpdateVM updateUser = new UserUpdateVM();
         updateUser.setDisplayName("newDisplayName");
         return updateUser;
     }
 
+    private <T> HttpEntity<T> withBearer(T body, String jwt) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(jwt);
+        return new HttpEntity<>(body, headers);
+    }
+
     private void authenticate(String username) {
         testRestTemplate.getRestTemplate()
                 .getInterceptors().add(new BasicAuthenticationInterceptor(username, "P4ssword12@"));
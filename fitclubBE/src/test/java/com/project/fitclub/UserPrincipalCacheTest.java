@@ -0,0 +1,67 @@
+package com.project.fitclub;
+
+import com.project.fitclub.configuration.AppConfiguration;
+import com.project.fitclub.model.User;
+import com.project.fitclub.security.UserPrincipal;
+import com.project.fitclub.security.UserPrincipalCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UserPrincipalCacheTest {
+
+    UserPrincipalCache userPrincipalCache;
+
+    AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void init() {
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setPrincipalCacheSize(2);
+        userPrincipalCache = new UserPrincipalCache(appConfiguration);
+    }
+
+    @Test
+    public void get_whenPrincipalIsCached_doesNotLoadItAgain() {
+        userPrincipalCache.get(1L, this::load);
+        UserPrincipal principal = userPrincipalCache.get(1L, this::load);
+
+        assertThat(principal.getId()).isEqualTo(1L);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(userPrincipalCache.getHitCount()).isEqualTo(1);
+        assertThat(userPrincipalCache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_whenPrincipalWasInvalidated_loadsItAgain() {
+        userPrincipalCache.get(1L, this::load);
+        userPrincipalCache.invalidate(1L);
+        userPrincipalCache.get(1L, this::load);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void get_whenCacheIsFull_dropsLeastRecentlyUsedPrincipal() {
+        userPrincipalCache.get(1L, this::load);
+        userPrincipalCache.get(2L, this::load);
+        userPrincipalCache.get(1L, this::load);
+        userPrincipalCache.get(3L, this::load);
+        userPrincipalCache.get(1L, this::load);
+        userPrincipalCache.get(2L, this::load);
+
+        assertThat(userPrincipalCache.getSize()).isEqualTo(2);
+        assertThat(loads.get()).isEqualTo(4);
+    }
+
+    private UserPrincipal load(Long id) {
+        loads.incrementAndGet();
+        User user = TestUtil.createValidUser("user" + id);
+        user.setId(id);
+        user.setEmailVerificationStatus(true);
+        return UserPrincipal.create(user);
+    }
+}
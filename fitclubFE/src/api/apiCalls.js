@@ -111,6 +111,22 @@ export const loadNewPostsCount = (postId, username, jwt) => {
   return axios.get(path, config);
 };
 
+// a short-lived token that opens post streams only, it ends up in the stream URL instead of the login token
+export const createStreamToken = (jwt) => {
+  const config = {
+    headers: { Authorization: `Bearer ${jwt}` }
+  };
+  return axios.post("/api/1.0/posts/stream/token", null, config);
+};
+
+// EventSource cannot send headers, the stream endpoint takes a stream token as a parameter
+export const openPostStream = (username, streamToken) => {
+  const basePath = username
+    ? `/api/1.0/users/${username}/posts`
+    : "/api/1.0/posts";
+  return new EventSource(`${basePath}/stream?access_token=${streamToken}`);
+};
+
 export const postUserPostFile = (file, jwt) => {
   const config = {
     headers: { Authorization: `Bearer ${jwt}` }
@@ -154,9 +170,16 @@ export const checkEmailVerification = (id, jwt) => {
   return axios.post(`/api/1.0/users/email-verification-check/confirmation/${id}`, config);
 };
 
-// confirm token
-export const confirmationToken = (token) => {
-  return axios.get(`/api/1.0/users/email-verification/confirmationToken/${token}`);
+// confirm token, a logged in user sends their token to get one with the confirmed status
+export const confirmationToken = (token, jwt) => {
+  const path = `/api/1.0/users/email-verification/confirmationToken/${token}`;
+  if (jwt) {
+    const config = {
+      headers: { Authorization: `Bearer ${jwt}` }
+    };
+    return axios.get(path, config);
+  }
+  return axios.get(path);
 };
 
 export const changeEmail = (id, jwt) => {
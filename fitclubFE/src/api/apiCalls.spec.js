@@ -87,6 +87,16 @@ describe("apiCalls", () => {
     });
   });
 
+  describe("createStreamToken", () => {
+    it("calls /api/1.0/posts/stream/token", () => {
+      const mockCreateStreamToken = jest.fn();
+      axios.post = mockCreateStreamToken;
+      apiCalls.createStreamToken();
+      const path = mockCreateStreamToken.mock.calls[0][0];
+      expect(path).toBe("/api/1.0/posts/stream/token");
+    });
+  });
+
   describe("loadPost", () => {
     it("calls /api/1.0/posts?page=0&size=5&sort=id,desc when no param provided", () => {
       const mockGetPosts = jest.fn();
@@ -18,6 +18,8 @@ export const changeTokenValidity = () => {
   };
 };
 
+const STREAM_RETRY_MS = 5000;
+
 const PostFeed = (props) => {
   const dispatch = useDispatch();
   const [page, setPage] = useState({ content: [] });
@@ -31,7 +33,7 @@ const PostFeed = (props) => {
   const [postToBeDeleted, setPostToBeDeleted] = useState();
 
   const [hasFullAccess, setHasFullAccess] = useState(props.loggedInUser.isLoggedIn ? true : false);
-  const intervalRef = useRef(null);
+  const checkCountRef = useRef(() => {});
 
   useEffect(() => {
     const loadPosts = () => {
@@ -57,41 +59,68 @@ const PostFeed = (props) => {
   }, [props.user, dispatch, props.loggedInUser, hasFullAccess]);
 
   useEffect(() => {
-    const checkCount = () => {
+    checkCountRef.current = () => {
       const posts = page.content;
       let toppostId = 0;
       if (posts.length > 0) {
         toppostId = posts[0].id;
       }
-      if (hasFullAccess && hasLoadedPosts) {
-        apiCalls
-          .loadNewPostsCount(toppostId, props.user, props.loggedInUser.jwt)
-          .then((response) => {
-            setNewPostsCount(response.data.count);
-          })
-          .catch((error) => {
-            if (props.user) {
-              props.fromChildToParentCallback(true);
-            }
-            dispatch(changeTokenValidity());
-            setHasFullAccess(false);
-          })
-      }
+      apiCalls
+        .loadNewPostsCount(toppostId, props.user, props.loggedInUser.jwt)
+        .then((response) => {
+          setNewPostsCount(response.data.count);
+        })
+        .catch((error) => {
+          if (props.user) {
+            props.fromChildToParentCallback(true);
+          }
+          dispatch(changeTokenValidity());
+          setHasFullAccess(false);
+        });
     };
+  }, [props, dispatch, page.content]);
 
-    if (hasFullAccess) {
-      intervalRef.current = setInterval(checkCount, 1500);
-
-      return function cleanup() {
-        if (isLoadingNewPosts) {
-          clearInterval(intervalRef.current);
-          intervalRef.current = setInterval(checkCount, 50);
-        }
-        clearInterval(intervalRef.current);
-      };
+  useEffect(() => {
+    if (!hasFullAccess || !hasLoadedPosts) {
+      return;
     }
-
-  }, [props.user, props, dispatch, page.content, isLoadingNewPosts, props.loggedInUser, hasFullAccess, hasLoadedPosts]);
+    // the server pushes an event when a post is added to this feed, the count is fetched only then
+    const checkCount = () => checkCountRef.current();
+    let stream;
+    let retry;
+    let closed = false;
+    const openStream = () => {
+      apiCalls
+        .createStreamToken(props.loggedInUser.jwt)
+        .then((response) => {
+          if (closed) {
+            return;
+          }
+          stream = apiCalls.openPostStream(props.user, response.data.token);
+          stream.addEventListener("open", checkCount);
+          stream.addEventListener("newPosts", checkCount);
+          stream.addEventListener("error", () => {
+            // a rejected stream is not retried by the browser, its token expires soon after it is opened;
+            // checking the count reports an expired session, otherwise the stream is opened with a new token
+            if (stream.readyState === 2) {
+              checkCount();
+              retry = setTimeout(openStream, STREAM_RETRY_MS);
+            }
+          });
+        })
+        .catch((error) => {
+          checkCount();
+        });
+    };
+    openStream();
+    return function cleanup() {
+      closed = true;
+      clearTimeout(retry);
+      if (stream) {
+        stream.close();
+      }
+    };
+  }, [props.user, props.loggedInUser.jwt, hasFullAccess, hasLoadedPosts]);
 
   const onClickLoadMore = () => {
     if (isLoadingOldPosts) {
@@ -128,8 +157,6 @@ const PostFeed = (props) => {
       toppostId = posts[0].id;
     }
     setLoadingNewPosts(true);
-    clearInterval(intervalRef.current);
-    intervalRef.current = null;
     apiCalls
       .loadNewPosts(toppostId, props.user, props.loggedInUser.jwt)
       .then((response) => {
@@ -23,33 +23,30 @@ const loggedInStateUser1 = {
   isLoggedIn: true,
 };
 
-const originalSetInterval = window.setInterval;
-const originalClearInterval = window.clearInterval;
-
-let timedFunction;
-let mySetIntervalId = 123456;
-
-const useFakeIntervals = () => {
-  window.setInterval = (callback, interval) => {
-    if (!callback.toString().startsWith("function")) {
-      timedFunction = callback;
-      return mySetIntervalId;
-    }
-  };
-  window.clearInterval = (id) => {
-    if (id === mySetIntervalId) {
-      timedFunction = undefined;
-    }
-  };
-};
-
-const useRealIntervals = () => {
-  window.setInterval = originalSetInterval;
-  window.clearInterval = originalClearInterval;
+let streamListeners = {};
+let streamClosed = false;
+
+const useFakeStream = () => {
+  streamListeners = {};
+  streamClosed = false;
+  apiCalls.createStreamToken = jest
+    .fn()
+    .mockResolvedValue({ data: { token: "stream-token" } });
+  apiCalls.openPostStream = jest.fn().mockImplementation(() => ({
+    readyState: 1,
+    addEventListener: (type, listener) => {
+      streamListeners[type] = listener;
+    },
+    close: () => {
+      streamClosed = true;
+    },
+  }));
 };
 
-const runTimer = () => {
-  timedFunction && timedFunction();
+// the stream is opened once its token is fetched
+const pushNewPosts = async () => {
+  await waitFor(() => expect(streamListeners.newPosts).toBeDefined());
+  streamListeners.newPosts();
 };
 
 const setup = (props, state = loggedInStateUser1) => {
@@ -220,6 +217,7 @@ describe("PostFeed", () => {
 
   beforeEach(() => {
     jwks.start();
+    useFakeStream();
   });
 
   afterEach(() => {
@@ -250,7 +248,6 @@ describe("PostFeed", () => {
     });
 
     it("calls loadNewPostsCount with toppostId", async () => {
-      jest.useFakeTimers();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -259,15 +256,13 @@ describe("PostFeed", () => {
         .mockResolvedValue({ data: { count: 1 } });
       const { findByText } = setup();
       await findByText("This is the latest post");
-      jest.runOnlyPendingTimers();
+      await pushNewPosts();
       await findByText("There is 1 new post");
       const firstParam = apiCalls.loadNewPostsCount.mock.calls[0][0];
       expect(firstParam).toBe(10);
-      jest.useRealTimers();
     });
 
     it("calls loadNewPostsCount with toppostId and username when rendered with user property", async () => {
-      jest.useFakeTimers();
       const token = jwks.token({});
       const stateWithMockJwt = Object.assign(loggedInStateUser1, { jwt: token });
 
@@ -279,14 +274,12 @@ describe("PostFeed", () => {
         .mockResolvedValue({ data: { count: 1 } });
       const { findByText } = setup({ user: "user1" }, stateWithMockJwt);
       await findByText("This is the latest post");
-      jest.runOnlyPendingTimers();
+      await pushNewPosts();
       await findByText("There is 1 new post");
       expect(apiCalls.loadNewPostsCount).toBeCalledWith(10, "user1", token);
-      jest.useRealTimers();
     });
 
     it("displays new posts count as 1 after loadNewPostsCount success", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -295,14 +288,12 @@ describe("PostFeed", () => {
         .mockResolvedValue({ data: { count: 1 } });
       const { findByText } = setup({ user: "user1" });
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       expect(newPostsCount).toBeInTheDocument();
-      useRealIntervals();
     });
 
     it("displays new posts count constantly", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -311,46 +302,63 @@ describe("PostFeed", () => {
         .mockResolvedValue({ data: { count: 1 } });
       const { findByText } = setup({ user: "user1" });
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       await findByText("There is 1 new post");
       apiCalls.loadNewPostsCount = jest
         .fn()
         .mockResolvedValue({ data: { count: 2 } });
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There are 2 new posts");
       expect(newPostsCount).toBeInTheDocument();
-      useRealIntervals();
     });
 
-    it("starts to call loadNewPostsCount after component is unmounted and posts are loaded", async () => {
-      useFakeIntervals();
+    it("does not call loadNewPostsCount before the stream reports new posts", async () => {
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
       apiCalls.loadNewPostsCount = jest
         .fn()
         .mockResolvedValue({ data: { count: 1 } });
+      const { findByText } = setup({ user: "user1" });
+      await findByText("This is the latest post");
+      await waitFor(() => expect(apiCalls.openPostStream).toHaveBeenCalledTimes(1));
+      expect(apiCalls.loadNewPostsCount).not.toHaveBeenCalled();
+    });
+
+    it("opens the post stream of the user when rendered with user property", async () => {
+      const token = jwks.token({});
+      const stateWithMockJwt = Object.assign(loggedInStateUser1, { jwt: token });
+
+      apiCalls.loadPosts = jest
+        .fn()
+        .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
+      const { findByText } = setup({ user: "user1" }, stateWithMockJwt);
+      await findByText("This is the latest post");
+      await waitFor(() => expect(apiCalls.openPostStream).toHaveBeenCalledWith("user1", "stream-token"));
+      expect(apiCalls.createStreamToken).toHaveBeenCalledWith(token);
+    });
+
+    it("closes the post stream when component is unmounted", async () => {
+      apiCalls.loadPosts = jest
+        .fn()
+        .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
       const { findByText, unmount } = setup({ user: "user1" });
       await findByText("This is the latest post");
-      runTimer();
-      await findByText("There is 1 new post");
+      await waitFor(() => expect(apiCalls.openPostStream).toHaveBeenCalled());
       unmount();
-      expect(apiCalls.loadNewPostsCount).toHaveBeenCalledTimes(5);
-      useRealIntervals();
+      expect(streamClosed).toBe(true);
     });
 
     it("displays new posts count as 1 after loadNewPostsCount success when user does not have posts initially", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest.fn().mockResolvedValue(mockEmptyResponse);
       apiCalls.loadNewPostsCount = jest
         .fn()
         .mockResolvedValue({ data: { count: 1 } });
       const { findByText } = setup({ user: "user1" });
       await findByText("There are no posts");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       expect(newPostsCount).toBeInTheDocument();
-      useRealIntervals();
     });
   });
 
@@ -466,7 +474,6 @@ describe("PostFeed", () => {
     });
 
     it("calls loadNewPosts with postId when clicking New Posts Count Card", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -478,16 +485,14 @@ describe("PostFeed", () => {
         .mockResolvedValue(mockSuccessGetnewPostsList);
       const { findByText } = setup();
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       fireEvent.click(newPostsCount);
       const firstParam = apiCalls.loadNewPosts.mock.calls[0][0];
       expect(firstParam).toBe(10);
-      useRealIntervals();
     });
 
     it("calls loadNewPosts with postId and username when clicking new posts count Card", async () => {
-      useFakeIntervals();
 
       const token = jwks.token({});
       const stateWithMockJwt = Object.assign(loggedInStateUser1, { jwt: token });
@@ -503,15 +508,13 @@ describe("PostFeed", () => {
         .mockResolvedValue(mockSuccessGetnewPostsList);
       const { findByText } = setup({ user: "user1" }, stateWithMockJwt);
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       fireEvent.click(newPostsCount);
       expect(apiCalls.loadNewPosts).toHaveBeenCalledWith(10, "user1", token);
-      useRealIntervals();
     });
 
     it("displays loaded new post when loadNewPosts api call success", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -523,17 +526,15 @@ describe("PostFeed", () => {
         .mockResolvedValue(mockSuccessGetnewPostsList);
       const { findByText } = setup({ user: "user1" });
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       fireEvent.click(newPostsCount);
       const newPost = await findByText("This is the newest post");
 
       expect(newPost).toBeInTheDocument();
-      useRealIntervals();
     });
 
     it("hides new posts count when loadNewPosts api call success", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -545,12 +546,11 @@ describe("PostFeed", () => {
         .mockResolvedValue(mockSuccessGetnewPostsList);
       const { findByText, queryByText } = setup({ user: "user1" });
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       fireEvent.click(newPostsCount);
       await findByText("This is the newest post");
       expect(queryByText("There is 1 new post")).not.toBeInTheDocument();
-      useRealIntervals();
     });
 
     it("does not allow loadOldPosts to be called when there is an active api call about it", async () => {
@@ -628,7 +628,6 @@ describe("PostFeed", () => {
     });
 
     it("does not allow loadNewPosts to be called when there is an active api call about it", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -640,18 +639,16 @@ describe("PostFeed", () => {
         .mockResolvedValue(mockSuccessGetnewPostsList);
       const { findByText } = setup({ user: "user1" });
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
 
       fireEvent.click(newPostsCount);
       fireEvent.click(newPostsCount);
 
       expect(apiCalls.loadNewPosts).toHaveBeenCalledTimes(1);
-      useRealIntervals();
     });
 
     it("replaces There is 1 new post with spinner when there is an active api call about it", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -667,7 +664,7 @@ describe("PostFeed", () => {
       });
       const { queryByText, findByText, queryByRole } = setup();
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       fireEvent.click(newPostsCount);
       await waitForElementToBeRemoved(() => queryByRole("status"));
@@ -675,11 +672,9 @@ describe("PostFeed", () => {
       const spinner = queryByRole("status");
       expect(spinner).not.toBeInTheDocument();
       expect(queryByText("There is 1 new post")).not.toBeInTheDocument();
-      useRealIntervals();
     });
 
     it("removes Spinner and There is 1 new post after active api call for loadNewPosts finishes with success", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -691,17 +686,15 @@ describe("PostFeed", () => {
         .mockResolvedValue(mockSuccessGetnewPostsList);
       const { queryByText, findByText } = setup({ user: "user1" });
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       fireEvent.click(newPostsCount);
       await findByText("This is the newest post");
       expect(queryByText("Loading...")).not.toBeInTheDocument();
       expect(queryByText("There is 1 new post")).not.toBeInTheDocument();
-      useRealIntervals();
     });
 
     it("replaces Spinner with There is 1 new post after active api call for loadNewPosts fails", async () => {
-      useFakeIntervals();
       apiCalls.loadPosts = jest
         .fn()
         .mockResolvedValue(mockSuccessGetPostsFirstOfMultiPage);
@@ -717,7 +710,7 @@ describe("PostFeed", () => {
       });
       const { queryByText, findByText, queryByRole } = setup();
       await findByText("This is the latest post");
-      runTimer();
+      await pushNewPosts();
       const newPostsCount = await findByText("There is 1 new post");
       fireEvent.click(newPostsCount);
       await waitForElementToBeRemoved(() => queryByRole("status"));
@@ -727,7 +720,6 @@ describe("PostFeed", () => {
         expect(spinner).not.toBeInTheDocument();
         expect(queryByText("There is 1 new post")).toBeInTheDocument();
       });
-      useRealIntervals();
     });
 
     it("displays modal with information about the action", async () => {
@@ -30,14 +30,15 @@ class ConfirmationToken extends Component {
             apiError: null
         })
 
-        apiCalls.confirmationToken(params.token)
+        apiCalls.confirmationToken(params.token, this.props.user.isLoggedIn ? this.props.user.jwt : null)
             .then((response) => {
                 this.setState({
                     isLoadingToken: false,
                     error: false
                 }, () => {
                     const action = {
-                        type: 'confirmation-token'
+                        type: 'confirmation-token',
+                        payload: response.data.jwt
                     };
                     this.props.dispatch(action);
                 })
@@ -188,6 +188,8 @@ const UserPage = (props) => {
         dispatch({ type: "update-success", payload: response.data.image });
         const updatedUser = { ...state.user };
         updatedUser.image = response.data.image;
+        // with self-contained tokens the update comes with a new token, the one sent is not accepted anymore
+        updatedUser.jwt = response.data.jwt;
 
         const action = {
           type: "update-success",
@@ -250,6 +250,31 @@ describe("HomePage", () => {
       });
     });
 
+    it("keeps the token returned by updateUser api for later calls", async () => {
+      const { queryByRole } = await setupForEdit();
+      apiCalls.updateUser = jest.fn().mockResolvedValue({
+        data: { ...mockSuccessUpdateUser.data, jwt: "jwt-reissued-token" },
+      });
+
+      const saveButton = queryByRole("button", { name: "Save" });
+      fireEvent.click(saveButton);
+      await waitFor(() => {
+        expect(store.getState().jwt).toBe("jwt-reissued-token");
+      });
+    });
+
+    it("keeps the current token when updateUser api returns none", async () => {
+      const { queryByRole } = await setupForEdit();
+      apiCalls.updateUser = jest.fn().mockResolvedValue(mockSuccessUpdateUser);
+
+      const saveButton = queryByRole("button", { name: "Save" });
+      fireEvent.click(saveButton);
+      await waitFor(() => {
+        expect(queryByRole("button", { name: "Edit Profile" })).toBeInTheDocument();
+      });
+      expect(store.getState().jwt).toBe("jwt-test-token");
+    });
+
     it("return to original displayName after its changed in edit mode but cancelled", async () => {
       const { queryByText, container } = await setupForEdit();
       apiCalls.checkValidToken = mockDelayedValidToken();
@@ -21,7 +21,8 @@ export default function authReducer(state = initialState, action) {
         return {
             ...state,
             displayName: action.payload.displayName,
-            image: action.payload.image
+            image: action.payload.image,
+            jwt: action.payload.jwt || state.jwt
         };
     }
     else if (action.type === 'token-has-expired') {
@@ -33,7 +34,8 @@ export default function authReducer(state = initialState, action) {
     else if (action.type === 'confirmation-token') {
         return {
             ...state,
-            emailVerificationStatus: true
+            emailVerificationStatus: true,
+            jwt: action.payload || state.jwt
         }
     }
     return state;